@@ -0,0 +1,40 @@
+package bench;
+
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.In;
+
+import java.io.File;
+
+
+// the WordNet assignment files, read from the directory given by the dir parameter
+final class Data {
+    private Data() { }
+
+    static String file(String dir, String name) {
+        File file = new File(dir, name);
+        if (!file.isFile()) {
+            throw new IllegalArgumentException(file + " not found; pass -p dir=<directory with the WordNet files>");
+        }
+        return file.getPath();
+    }
+
+    // the hypernym graph of hypernyms.txt, sized by the number of lines in synsets.txt
+    static Digraph hypernyms(String dir) {
+        In synsets = new In(file(dir, "synsets.txt"));
+        int V = 0;
+        while (synsets.hasNextLine()) {
+            synsets.readLine();
+            V++;
+        }
+        Digraph G = new Digraph(V);
+        In hypernyms = new In(file(dir, "hypernyms.txt"));
+        while (hypernyms.hasNextLine()) {
+            String[] fields = hypernyms.readLine().split(",");
+            int v = Integer.parseInt(fields[0]);
+            for (int i = 1; i < fields.length; i++) {
+                G.addEdge(v, Integer.parseInt(fields[i]));
+            }
+        }
+        return G;
+    }
+}
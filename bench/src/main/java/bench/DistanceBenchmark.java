@@ -0,0 +1,82 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * WordNet.distance on random noun pairs from one shared WordNet. Run it with
+ * -t 1, -t 2, ... to see how queries scale with threads; cacheSize 0 is the
+ * default configuration, 1024 puts every query behind the shared result cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+    private static final int SAMPLE = 1024;     // a power of two, see next()
+    private static final long SEED = 20240101L;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"."})
+        public String dir;
+
+        @Param({"0", "1024"})
+        public int cacheSize;
+
+        Object wordnet;
+        final List<String> nouns = new ArrayList<>();
+
+        @Setup
+        public void setUp() {
+            wordnet = Hw1.wordNet(Data.file(dir, "synsets.txt"), Data.file(dir, "hypernyms.txt"), cacheSize);
+            for (Object noun : Hw1.nouns(wordnet)) {
+                nouns.add((String) noun);
+            }
+        }
+    }
+
+    // each thread cycles through its own sample, so threads do not ask the same pairs in step
+    @State(Scope.Thread)
+    public static class Pairs {
+        final String[] a = new String[SAMPLE];
+        final String[] b = new String[SAMPLE];
+        int next;
+
+        @Setup
+        public void setUp(Shared shared, ThreadParams thread) {
+            Random random = new Random(SEED + thread.getThreadIndex());
+            for (int i = 0; i < SAMPLE; i++) {
+                a[i] = shared.nouns.get(random.nextInt(shared.nouns.size()));
+                b[i] = shared.nouns.get(random.nextInt(shared.nouns.size()));
+            }
+        }
+
+        int next() {
+            return next++ & (SAMPLE - 1);
+        }
+    }
+
+    @Benchmark
+    public int distance(Shared shared, Pairs pairs) {
+        int i = pairs.next();
+        return Hw1.distance(shared.wordnet, pairs.a[i], pairs.b[i]);
+    }
+}
@@ -0,0 +1,169 @@
+package bench;
+
+import edu.princeton.cs.algs4.Digraph;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+
+/**
+ * Entry points into the hw1 classes. They live in the unnamed package, which
+ * code in a named package cannot name, and JMH refuses benchmarks in the unnamed
+ * package. The handles are static final, so the JIT treats them as constants and
+ * inlines the calls as if they were direct.
+ */
+final class Hw1 {
+    private static final MethodHandle SAP_NEW;
+    private static final MethodHandle SAP_LENGTH;
+    private static final MethodHandle SAP_LENGTH_SETS;
+    private static final MethodHandle WORDNET_NEW;
+    private static final MethodHandle WORDNET_NEW_CACHED;
+    private static final MethodHandle NOUNS;
+    private static final MethodHandle DISTANCE;
+    private static final MethodHandle OUTCAST_NEW;
+    private static final MethodHandle OUTCAST;
+    private static final MethodHandle COMPACT_NEW;
+    private static final MethodHandle IS_ROOTED_DAG;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> sap = Class.forName("SAP");
+            Class<?> wordnet = Class.forName("WordNet");
+            Class<?> outcast = Class.forName("Outcast");
+            Class<?> compact = Class.forName("CompactDigraph");
+
+            SAP_NEW = lookup.findConstructor(sap, MethodType.methodType(void.class, Digraph.class))
+                            .asType(MethodType.methodType(Object.class, Digraph.class));
+            SAP_LENGTH = lookup.findVirtual(sap, "length", MethodType.methodType(int.class, int.class, int.class))
+                               .asType(MethodType.methodType(int.class, Object.class, int.class, int.class));
+            SAP_LENGTH_SETS = lookup.findVirtual(sap, "length",
+                                                 MethodType.methodType(int.class, Iterable.class, Iterable.class))
+                                    .asType(MethodType.methodType(int.class, Object.class, Iterable.class, Iterable.class));
+            WORDNET_NEW = lookup.findConstructor(wordnet,
+                                                 MethodType.methodType(void.class, String.class, String.class))
+                                .asType(MethodType.methodType(Object.class, String.class, String.class));
+            WORDNET_NEW_CACHED = lookup.findConstructor(wordnet,
+                                                        MethodType.methodType(void.class, String.class, String.class,
+                                                                              int.class))
+                                       .asType(MethodType.methodType(Object.class, String.class, String.class,
+                                                                     int.class));
+            NOUNS = lookup.findVirtual(wordnet, "nouns", MethodType.methodType(Iterable.class))
+                          .asType(MethodType.methodType(Iterable.class, Object.class));
+            DISTANCE = lookup.findVirtual(wordnet, "distance",
+                                          MethodType.methodType(int.class, String.class, String.class))
+                             .asType(MethodType.methodType(int.class, Object.class, String.class, String.class));
+            OUTCAST_NEW = lookup.findConstructor(outcast, MethodType.methodType(void.class, wordnet))
+                                .asType(MethodType.methodType(Object.class, Object.class));
+            OUTCAST = lookup.findVirtual(outcast, "outcast", MethodType.methodType(String.class, String[].class))
+                            .asType(MethodType.methodType(String.class, Object.class, String[].class));
+            COMPACT_NEW = lookup.findConstructor(compact, MethodType.methodType(void.class, Digraph.class))
+                                .asType(MethodType.methodType(Object.class, Digraph.class));
+            IS_ROOTED_DAG = lookup.findVirtual(compact, "isRootedDAG", MethodType.methodType(boolean.class))
+                                  .asType(MethodType.methodType(boolean.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Hw1() { }
+
+    static Object sap(Digraph G) {
+        try {
+            return (Object) SAP_NEW.invokeExact(G);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static int length(Object sap, int v, int w) {
+        try {
+            return (int) SAP_LENGTH.invokeExact(sap, v, w);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static int length(Object sap, Iterable<Integer> v, Iterable<Integer> w) {
+        try {
+            return (int) SAP_LENGTH_SETS.invokeExact(sap, v, w);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object wordNet(String synsets, String hypernyms) {
+        try {
+            return (Object) WORDNET_NEW.invokeExact(synsets, hypernyms);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object wordNet(String synsets, String hypernyms, int cacheSize) {
+        try {
+            return (Object) WORDNET_NEW_CACHED.invokeExact(synsets, hypernyms, cacheSize);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Iterable<?> nouns(Object wordnet) {
+        try {
+            return (Iterable<?>) NOUNS.invokeExact(wordnet);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static int distance(Object wordnet, String nounA, String nounB) {
+        try {
+            return (int) DISTANCE.invokeExact(wordnet, nounA, nounB);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object outcast(Object wordnet) {
+        try {
+            return (Object) OUTCAST_NEW.invokeExact(wordnet);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static String outcast(Object outcast, String[] nouns) {
+        try {
+            return (String) OUTCAST.invokeExact(outcast, nouns);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object compactDigraph(Digraph G) {
+        try {
+            return (Object) COMPACT_NEW.invokeExact(G);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static boolean isRootedDAG(Object compactDigraph) {
+        try {
+            return (boolean) IS_ROOTED_DAG.invokeExact(compactDigraph);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,59 @@
+package bench;
+
+import edu.princeton.cs.algs4.Picture;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+
+/**
+ * Entry points into the hw2 SeamCarver, through static final method handles for
+ * the same reason as Hw1.
+ */
+final class Hw2 {
+    private static final MethodHandle CARVER_NEW;
+    private static final MethodHandle FIND_VERTICAL_SEAM;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> carver = Class.forName("SeamCarver");
+
+            CARVER_NEW = lookup.findConstructor(carver, MethodType.methodType(void.class, Picture.class))
+                               .asType(MethodType.methodType(Object.class, Picture.class));
+            FIND_VERTICAL_SEAM = lookup.findVirtual(carver, "findVerticalSeam", MethodType.methodType(int[].class))
+                                       .asType(MethodType.methodType(int[].class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Hw2() { }
+
+    static Object seamCarver(Picture picture) {
+        try {
+            return (Object) CARVER_NEW.invokeExact(picture);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static int[] findVerticalSeam(Object carver) {
+        try {
+            return (int[]) FIND_VERTICAL_SEAM.invokeExact(carver);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,46 @@
+package bench;
+
+import edu.princeton.cs.algs4.In;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+// Outcast.outcast on the outcast files that come with the assignment
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutcastBenchmark {
+    @Param({"."})
+    public String dir;
+
+    @Param({"outcast5.txt", "outcast8.txt", "outcast11.txt"})
+    public String file;
+
+    private Object outcast;
+    private String[] nouns;
+
+    @Setup
+    public void setUp() {
+        outcast = Hw1.outcast(Hw1.wordNet(Data.file(dir, "synsets.txt"), Data.file(dir, "hypernyms.txt")));
+        nouns = new In(Data.file(dir, file)).readAllStrings();
+    }
+
+    @Benchmark
+    public String outcast() {
+        return Hw1.outcast(outcast, nouns);
+    }
+}
@@ -0,0 +1,140 @@
+package bench;
+
+import edu.princeton.cs.algs4.Digraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * SAP.length on the WordNet hypernym graph, cycling through a fixed sample of
+ * queries so successive calls do not repeat the same pair.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SapBenchmark {
+    private static final int SAMPLE = 1024;     // a power of two, see next()
+    private static final long SEED = 20240101L;
+    private static final int ATTEMPTS = 100 * SAMPLE;  // random pairs tried before giving up on a graph
+
+    @State(Scope.Thread)
+    public static class Pairs {
+        @Param({"."})
+        public String dir;
+
+        // near pairs have length at most 4, far pairs at least 12
+        @Param({"near", "far"})
+        public String distance;
+
+        Object sap;
+        final int[] v = new int[SAMPLE];
+        final int[] w = new int[SAMPLE];
+        int next;
+
+        @Setup
+        public void setUp() {
+            Digraph G = Data.hypernyms(dir);
+            Digraph reverse = G.reverse();
+            sap = Hw1.sap(G);
+            boolean near = "near".equals(distance);
+            Random random = new Random(SEED);
+            int n = 0;
+            for (int attempt = 0; n < SAMPLE; attempt++) {
+                if (attempt == ATTEMPTS) {
+                    throw new IllegalStateException("Found only " + n + " " + distance + " pairs in "
+                                                    + ATTEMPTS + " random tries on " + dir);
+                }
+                int a = random.nextInt(G.V());
+                int b = near ? walk(reverse, walk(G, a, random), random) : random.nextInt(G.V());
+                int length = Hw1.length(sap, a, b);
+                if (near ? a != b && length >= 0 && length <= 4 : length >= 12) {
+                    v[n] = a;
+                    w[n] = b;
+                    n++;
+                }
+            }
+        }
+
+        // up to two random steps from x along the edges of G
+        private static int walk(Digraph G, int x, Random random) {
+            for (int step = 0; step < 2 && G.outdegree(x) > 0; step++) {
+                List<Integer> adj = new ArrayList<>();
+                for (int y : G.adj(x)) {
+                    adj.add(y);
+                }
+                x = adj.get(random.nextInt(adj.size()));
+            }
+            return x;
+        }
+
+        int next() {
+            return next++ & (SAMPLE - 1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Sets {
+        @Param({"."})
+        public String dir;
+
+        // vertices in each of the two sets
+        @Param({"2", "8"})
+        public int size;
+
+        Object sap;
+        final List<List<Integer>> v = new ArrayList<>(SAMPLE);
+        final List<List<Integer>> w = new ArrayList<>(SAMPLE);
+        int next;
+
+        @Setup
+        public void setUp() {
+            Digraph G = Data.hypernyms(dir);
+            sap = Hw1.sap(G);
+            Random random = new Random(SEED);
+            for (int i = 0; i < SAMPLE; i++) {
+                v.add(randomSet(G.V(), random));
+                w.add(randomSet(G.V(), random));
+            }
+        }
+
+        private List<Integer> randomSet(int V, Random random) {
+            List<Integer> set = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                set.add(random.nextInt(V));
+            }
+            return set;
+        }
+
+        int next() {
+            return next++ & (SAMPLE - 1);
+        }
+    }
+
+    @Benchmark
+    public int length(Pairs pairs) {
+        int i = pairs.next();
+        return Hw1.length(pairs.sap, pairs.v[i], pairs.w[i]);
+    }
+
+    @Benchmark
+    public int lengthSets(Sets sets) {
+        int i = sets.next();
+        return Hw1.length(sets.sap, sets.v.get(i), sets.w.get(i));
+    }
+}
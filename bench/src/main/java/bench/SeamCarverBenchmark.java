@@ -0,0 +1,69 @@
+package bench;
+
+import edu.princeton.cs.algs4.Picture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * SeamCarver construction, which reads the pixels and works out every energy, and
+ * findVerticalSeam on random 4K and 8K pictures. constructSerial runs in a JVM
+ * whose common ForkJoinPool has a parallelism of one, which keeps the energy pass
+ * on the calling thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SeamCarverBenchmark {
+    @Param({"3840x2160", "7680x4320"})
+    public String size;
+
+    private Picture picture;
+    private Object carver;
+
+    @Setup
+    public void setUp() {
+        int x = size.indexOf('x');
+        int width = Integer.parseInt(size.substring(0, x));
+        int height = Integer.parseInt(size.substring(x + 1));
+        Random random = new Random(1);
+        picture = new Picture(width, height);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                picture.setRGB(col, row, random.nextInt(1 << 24));
+            }
+        }
+        carver = Hw2.seamCarver(picture);
+    }
+
+    @Benchmark
+    public Object construct() {
+        return Hw2.seamCarver(picture);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.util.concurrent.ForkJoinPool.common.parallelism=1"})
+    public Object constructSerial() {
+        return Hw2.seamCarver(picture);
+    }
+
+    @Benchmark
+    public int[] findVerticalSeam() {
+        return Hw2.findVerticalSeam(carver);
+    }
+}
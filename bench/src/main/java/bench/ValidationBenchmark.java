@@ -0,0 +1,63 @@
+package bench;
+
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.DirectedCycle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Rooted DAG validation of the hypernym graph: CompactDigraph.isRootedDAG(),
+ * which WordNet uses, against the DirectedCycle and root scan it replaced.
+ * Neither includes building its graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class ValidationBenchmark {
+    @Param({"."})
+    public String dir;
+
+    private Digraph graph;
+    private Object compact;
+
+    @Setup
+    public void setUp() {
+        graph = Data.hypernyms(dir);
+        compact = Hw1.compactDigraph(graph);
+    }
+
+    @Benchmark
+    public boolean kahn() {
+        return Hw1.isRootedDAG(compact);
+    }
+
+    // the recursive depth-first search needs the larger thread stack set above on deep inputs
+    @Benchmark
+    public boolean directedCycle() {
+        if (new DirectedCycle(graph).hasCycle()) {
+            return false;
+        }
+        int roots = 0;
+        for (int v = 0; v < graph.V(); v++) {
+            if (!graph.adj(v).iterator().hasNext()) {
+                roots++;
+            }
+        }
+        return roots == 1;
+    }
+}
@@ -0,0 +1,42 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+// WordNet construction from synsets.txt and hypernyms.txt: parsing, validation and the SAP graph
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WordNetBenchmark {
+    @Param({"."})
+    public String dir;
+
+    private String synsets;
+    private String hypernyms;
+
+    @Setup
+    public void setUp() {
+        synsets = Data.file(dir, "synsets.txt");
+        hypernyms = Data.file(dir, "hypernyms.txt");
+    }
+
+    @Benchmark
+    public Object construct() {
+        return Hw1.wordNet(synsets, hypernyms);
+    }
+}
@@ -0,0 +1,159 @@
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.Arrays;
+
+
+/**
+ * Transitive-ancestor table for a DAG. For every vertex v it stores each ancestor
+ * of v (v included) together with its distance from v, sorted by ancestor id.
+ * A shortest ancestral path query then becomes an intersection of two labels
+ * instead of a graph search.
+ *
+ * Labels are built once, parents before children, by merging the labels of a
+ * vertex's direct ancestors. The entries of all vertices live in two flat int
+ * arrays; the label of v is the range [start[v], end[v]).
+ *
+ * The labels are the whole transitive closure, one entry per (vertex, ancestor)
+ * pair, so the table grows with V times the depth of the graph. Graphs whose
+ * closure would not fit in a Java array are rejected rather than indexed.
+ */
+public class AncestorIndex {
+    private static final int MAX_ENTRIES = Integer.MAX_VALUE - 8;   // largest array most VMs allocate
+
+    final int[] start;
+    final int[] end;
+    final int[] ancestors;
+    final int[] dists;
+
+    private final long buildNanos;
+
+    public AncestorIndex(CompactDigraph graph) {
+        if (null == graph) {
+            throw new IllegalArgumentException("Null input to constructor");
+        }
+        long started = System.nanoTime();
+        int n = graph.V();
+        start = new int[n];
+        end = new int[n];
+
+        // Kahn's algorithm on the hypernym direction: a vertex is labelled once all of its ancestors are
+        int[] pending = new int[n];
+        int[] order = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            pending[v] = graph.outdegree(v);
+            if (pending[v] == 0) {
+                order[tail++] = v;
+            }
+        }
+        CompactDigraph reverse = graph.reverse();
+
+        int[] flatAncestors = new int[(int) Math.min(MAX_ENTRIES, Math.max(16, 2L * n))];
+        int[] flatDists = new int[flatAncestors.length];
+        int size = 0;
+
+        int[] mark = new int[n];
+        int[] dist = new int[n];
+        int[] buffer = new int[n];
+        int epoch = 0;
+
+        while (head < tail) {
+            int v = order[head++];
+            epoch++;
+            int count = 0;
+            mark[v] = epoch;
+            dist[v] = 0;
+            buffer[count++] = v;
+            for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; k++) {
+                int p = graph.targets[k];
+                for (int i = start[p]; i < end[p]; i++) {
+                    int a = flatAncestors[i];
+                    int d = flatDists[i] + 1;
+                    if (mark[a] != epoch) {
+                        mark[a] = epoch;
+                        dist[a] = d;
+                        buffer[count++] = a;
+                    } else if (d < dist[a]) {
+                        dist[a] = d;
+                    }
+                }
+            }
+            Arrays.sort(buffer, 0, count);
+
+            if (size + count > flatAncestors.length) {
+                long needed = (long) size + count;
+                if (needed > MAX_ENTRIES) {
+                    throw new IllegalArgumentException("An ancestor index of this graph needs more than "
+                                                       + MAX_ENTRIES + " entries");
+                }
+                int capacity = (int) Math.min(MAX_ENTRIES, Math.max(needed, 2L * flatAncestors.length));
+                flatAncestors = Arrays.copyOf(flatAncestors, capacity);
+                flatDists = Arrays.copyOf(flatDists, capacity);
+            }
+            start[v] = size;
+            for (int i = 0; i < count; i++) {
+                flatAncestors[size] = buffer[i];
+                flatDists[size] = dist[buffer[i]];
+                size++;
+            }
+            end[v] = size;
+
+            for (int k = reverse.offsets[v]; k < reverse.offsets[v + 1]; k++) {
+                int c = reverse.targets[k];
+                if (--pending[c] == 0) {
+                    order[tail++] = c;
+                }
+            }
+        }
+        if (tail != n) {
+            throw new IllegalArgumentException("An ancestor index requires an acyclic graph");
+        }
+
+        ancestors = Arrays.copyOf(flatAncestors, size);
+        dists = Arrays.copyOf(flatDists, size);
+        buildNanos = System.nanoTime() - started;
+    }
+
+    // takes ownership of previously built label arrays, e.g. from a WordNetSnapshot
+    AncestorIndex(int[] start, int[] end, int[] ancestors, int[] dists) {
+        this.start = start;
+        this.end = end;
+        this.ancestors = ancestors;
+        this.dists = dists;
+        this.buildNanos = 0;
+    }
+
+    // number of vertices covered by the index
+    public int V() {
+        return start.length;
+    }
+
+    // total number of (vertex, ancestor) entries
+    public int size() {
+        return ancestors.length;
+    }
+
+    // approximate heap footprint of the index arrays in bytes
+    public long memoryBytes() {
+        return 4L * (start.length + end.length + ancestors.length + dists.length);
+    }
+
+    public long buildMillis() {
+        return buildNanos / 1000000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d vertices, %d entries, %.1f MB, built in %d ms",
+                             V(), size(), memoryBytes() / (1024.0 * 1024.0), buildMillis());
+    }
+
+    // report the footprint of the index for the digraph named on the command line
+    public static void main(String[] args) {
+        CompactDigraph graph = new CompactDigraph(new Digraph(new In(args[0])));
+        StdOut.println(graph + ": " + new AncestorIndex(graph));
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+
+/**
+ * Constant time shortest ancestral paths between chain vertices: vertices whose
+ * ancestors, themselves included, all have at most one outgoing edge. The
+ * ancestors of a chain vertex form a single path, so chain vertices make up a
+ * forest, and the shortest ancestral path between two of them in the same tree
+ * goes through their lowest common ancestor.
+ *
+ * The forest is stored as an Euler tour with a sparse table of range minima over
+ * the depths along the tour, so a lowest common ancestor is two table lookups.
+ * The tour has fewer than 2n entries for n chain vertices and the table has one
+ * level per power of two up to that length.
+ */
+final class ChainLca {
+    private static final byte UNKNOWN = 0;
+    private static final byte WALKING = 1;
+    private static final byte CHAIN = 2;
+    private static final byte BRANCHED = 3;
+
+    private final int[] first;      // index of v in the tour, -1 unless v is a chain vertex
+    private final int[] depth;      // edges from v up to the root of its tree
+    private final int[] root;
+    private final int[][] sparse;   // sparse[k][i] is the shallowest vertex of tour[i, i + 2^k)
+
+    ChainLca(CompactDigraph G) {
+        int V = G.V();
+        byte[] status = chainStatus(G);
+
+        // children of every chain vertex, in compressed rows
+        int[] childStart = new int[V + 1];
+        int n = 0;
+        for (int v = 0; v < V; v++) {
+            if (status[v] == CHAIN) {
+                n++;
+                if (G.outdegree(v) == 1) {
+                    childStart[G.targets[G.offsets[v]] + 1]++;
+                }
+            }
+        }
+        for (int v = 0; v < V; v++) {
+            childStart[v + 1] += childStart[v];
+        }
+        int[] next = Arrays.copyOf(childStart, V);
+        int[] children = new int[childStart[V]];
+        for (int v = 0; v < V; v++) {
+            if (status[v] == CHAIN && G.outdegree(v) == 1) {
+                children[next[G.targets[G.offsets[v]]]++] = v;
+            }
+        }
+
+        // Euler tour of every tree, iteratively; next[x] is the next child of x to descend into
+        first = new int[V];
+        depth = new int[V];
+        root = new int[V];
+        Arrays.fill(first, -1);
+        System.arraycopy(childStart, 0, next, 0, V);
+        int[] tour = new int[Math.max(1, 2 * n)];
+        int[] stack = new int[V];
+        int m = 0;
+        for (int r = 0; r < V; r++) {
+            if (status[r] != CHAIN || G.outdegree(r) != 0) {
+                continue;
+            }
+            root[r] = r;
+            first[r] = m;
+            tour[m++] = r;
+            int top = 0;
+            stack[top++] = r;
+            while (top > 0) {
+                int x = stack[top - 1];
+                if (next[x] < childStart[x + 1]) {
+                    int c = children[next[x]++];
+                    depth[c] = depth[x] + 1;
+                    root[c] = r;
+                    first[c] = m;
+                    tour[m++] = c;
+                    stack[top++] = c;
+                } else {
+                    top--;
+                    if (top > 0) {
+                        tour[m++] = stack[top - 1];
+                    }
+                }
+            }
+        }
+        int levels = 1;
+        while ((1 << levels) <= m) {
+            levels++;
+        }
+        sparse = new int[levels][];
+        sparse[0] = Arrays.copyOf(tour, m);
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            int[] previous = sparse[k - 1];
+            int[] level = new int[m - (1 << k) + 1];
+            for (int i = 0; i < level.length; i++) {
+                level[i] = shallower(previous[i], previous[i + half]);
+            }
+            sparse[k] = level;
+        }
+    }
+
+    /**
+     * Classifies every vertex by following its single outgoing edges upwards. A
+     * walk that reaches a root makes every vertex on it a chain vertex; one that
+     * reaches a vertex with two or more edges, or runs into a cycle, makes none.
+     */
+    private static byte[] chainStatus(CompactDigraph G) {
+        int V = G.V();
+        byte[] status = new byte[V];
+        int[] path = new int[V];
+        for (int s = 0; s < V; s++) {
+            int n = 0;
+            int x = s;
+            byte result;
+            while (true) {
+                if (status[x] == CHAIN || status[x] == BRANCHED) {
+                    result = status[x];
+                    break;
+                }
+                if (status[x] == WALKING || G.outdegree(x) > 1) {
+                    result = BRANCHED;
+                    break;
+                }
+                status[x] = WALKING;
+                path[n++] = x;
+                if (G.outdegree(x) == 0) {
+                    result = CHAIN;
+                    break;
+                }
+                x = G.targets[G.offsets[x]];
+            }
+            if (status[x] == UNKNOWN) {
+                status[x] = result;
+            }
+            while (n > 0) {
+                status[path[--n]] = result;
+            }
+        }
+        return status;
+    }
+
+    private int shallower(int x, int y) {
+        return depth[x] <= depth[y] ? x : y;
+    }
+
+    // the number of vertices of the graph this was built for
+    int V() {
+        return first.length;
+    }
+
+    boolean contains(int v) {
+        return v < first.length && first[v] >= 0;
+    }
+
+    int depth(int v) {
+        return depth[v];
+    }
+
+    // lowest common ancestor of the chain vertices v and w, or -1 when they are in different trees
+    int lca(int v, int w) {
+        if (root[v] != root[w]) {
+            return -1;
+        }
+        int lo = first[v];
+        int hi = first[w];
+        if (lo > hi) {
+            int t = lo;
+            lo = hi;
+            hi = t;
+        }
+        int k = 31 - Integer.numberOfLeadingZeros(hi - lo + 1);
+        return shallower(sparse[k][lo], sparse[k][hi - (1 << k) + 1]);
+    }
+}
@@ -0,0 +1,170 @@
+import edu.princeton.cs.algs4.Digraph;
+
+import java.util.Arrays;
+
+
+/**
+ * Immutable digraph in compressed sparse row form. The vertices adjacent from v
+ * are targets[offsets[v]] .. targets[offsets[v + 1] - 1], so the whole graph is
+ * two int arrays instead of one linked Bag of boxed Integers per vertex, and a
+ * breadth-first scan reads adjacency lists sequentially.
+ *
+ * Instances are never modified after construction, so they can be shared between
+ * SAP instances and threads without copying.
+ */
+public final class CompactDigraph {
+    final int[] offsets;
+    final int[] targets;
+
+    public CompactDigraph(Digraph G) {
+        if (null == G) {
+            throw new IllegalArgumentException("Null input to constructor");
+        }
+        offsets = new int[G.V() + 1];
+        targets = new int[G.E()];
+        int e = 0;
+        for (int v = 0; v < G.V(); v++) {
+            offsets[v] = e;
+            for (int w : G.adj(v)) {
+                targets[e++] = w;
+            }
+        }
+        offsets[G.V()] = e;
+    }
+
+    // takes ownership of the arrays; callers must not modify them afterwards
+    CompactDigraph(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Builds the graph on V vertices from the edges from[i] -> to[i], 0 <= i < E.
+     */
+    static CompactDigraph fromEdges(int V, int[] from, int[] to, int E) {
+        int[] offsets = new int[V + 1];
+        for (int i = 0; i < E; i++) {
+            offsets[from[i] + 1]++;
+        }
+        for (int v = 0; v < V; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] next = Arrays.copyOf(offsets, V);
+        int[] targets = new int[E];
+        for (int i = 0; i < E; i++) {
+            targets[next[from[i]]++] = to[i];
+        }
+        return new CompactDigraph(offsets, targets);
+    }
+
+    /**
+     * This graph grown to V vertices, with the edges v -> added[v][i] appended
+     * to the adjacency of each v; added and its rows may be shorter or null.
+     */
+    CompactDigraph merge(int V, int[][] added) {
+        int[] mergedOffsets = new int[V + 1];
+        int e = 0;
+        for (int v = 0; v < V; v++) {
+            mergedOffsets[v] = e;
+            if (v < V()) {
+                e += outdegree(v);
+            }
+            if (v < added.length && null != added[v]) {
+                e += added[v].length;
+            }
+        }
+        mergedOffsets[V] = e;
+
+        int[] mergedTargets = new int[e];
+        for (int v = 0; v < V; v++) {
+            int k = mergedOffsets[v];
+            if (v < V()) {
+                System.arraycopy(targets, offsets[v], mergedTargets, k, outdegree(v));
+                k += outdegree(v);
+            }
+            if (v < added.length && null != added[v]) {
+                System.arraycopy(added[v], 0, mergedTargets, k, added[v].length);
+            }
+        }
+        return new CompactDigraph(mergedOffsets, mergedTargets);
+    }
+
+    public int V() {
+        return offsets.length - 1;
+    }
+
+    public int E() {
+        return targets.length;
+    }
+
+    public int outdegree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    // the vertices adjacent from v, as a fresh array
+    public int[] adj(int v) {
+        return Arrays.copyOfRange(targets, offsets[v], offsets[v + 1]);
+    }
+
+    // the graph with every edge reversed
+    public CompactDigraph reverse() {
+        int V = V();
+        int[] from = new int[E()];
+        for (int v = 0; v < V; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                from[i] = v;
+            }
+        }
+        return fromEdges(V, targets, from, E());
+    }
+
+    /**
+     * Is this a DAG with exactly one vertex of outdegree 0, which every other
+     * vertex then reaches. Kahn's algorithm: one pass counts the roots and the
+     * in-degrees, then vertices are peeled from the leaves up, and only a cycle can
+     * leave vertices unpeeled. Iterative, so deep graphs cannot overflow the stack.
+     */
+    public boolean isRootedDAG() {
+        int V = V();
+        int[] indegree = new int[V];
+        int roots = 0;
+        for (int v = 0; v < V; v++) {
+            if (offsets[v] == offsets[v + 1]) {
+                roots++;
+            }
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                indegree[targets[k]]++;
+            }
+        }
+        if (roots != 1) {
+            return false;
+        }
+
+        int[] queue = new int[V];
+        int tail = 0;
+        for (int v = 0; v < V; v++) {
+            if (indegree[v] == 0) {
+                queue[tail++] = v;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int x = queue[head];
+            for (int k = offsets[x]; k < offsets[x + 1]; k++) {
+                if (--indegree[targets[k]] == 0) {
+                    queue[tail++] = targets[k];
+                }
+            }
+        }
+        return tail == V;
+    }
+
+    // heap footprint of the adjacency arrays in bytes
+    public long memoryBytes() {
+        return 4L * (offsets.length + targets.length);
+    }
+
+    @Override
+    public String toString() {
+        return V() + " vertices, " + E() + " edges";
+    }
+}
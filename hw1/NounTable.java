@@ -0,0 +1,223 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+
+/**
+ * Dictionary from WordNet noun to the ids of the synsets containing it.
+ * Every distinct noun is interned to a dense noun id; lookups go through an
+ * open-addressing table of noun ids (linear probing, power of two capacity)
+ * and the synsets of a noun are a sorted int[] that can be handed to SAP as is.
+ * Compared with a HashMap of HashSets there are no boxed Integers and no
+ * per-entry objects besides the noun strings and one int[] per noun.
+ */
+final class NounTable {
+    private String[] nouns;
+    private int[][] synsets;
+    private int[] slots;              // noun id + 1, 0 marks an empty slot
+    private int size;
+
+    // takes ownership of the arrays, e.g. from a WordNetSnapshot
+    NounTable(String[] nouns, int[][] synsets, int[] slots) {
+        this.nouns = nouns;
+        this.synsets = synsets;
+        this.slots = slots;
+        this.size = nouns.length;
+    }
+
+    // noun id of the noun, or -1 when it is not in the table
+    int indexOf(String noun) {
+        int i = slot(nouns, slots, noun);
+        return slots[i] - 1;
+    }
+
+    /**
+     * Noun id of the noun held as UTF-8 in bytes[from, to), or -1 when it is not in
+     * the table. An ASCII noun hashes and compares like its String would, so it is
+     * looked up in place; any other noun is decoded first.
+     */
+    int indexOf(ByteBuffer bytes, int from, int to) {
+        int h = 0;
+        for (int k = from; k < to; k++) {
+            byte b = bytes.get(k);
+            if (b < 0) {
+                byte[] utf8 = new byte[to - from];
+                bytes.get(from, utf8);
+                return indexOf(new String(utf8, StandardCharsets.UTF_8));
+            }
+            h = 31 * h + b;
+        }
+        int mask = slots.length - 1;
+        int i = spread(h) & mask;
+        while (slots[i] != 0) {
+            if (matches(nouns[slots[i] - 1], bytes, from, to)) {
+                return slots[i] - 1;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean matches(String noun, ByteBuffer bytes, int from, int to) {
+        if (noun.length() != to - from) {
+            return false;
+        }
+        for (int k = from; k < to; k++) {
+            if (noun.charAt(k - from) != bytes.get(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // records that noun belongs to synset, interning the noun if it is new
+    void add(String noun, int synset) {
+        int i = slot(nouns, slots, noun);
+        if (slots[i] == 0) {
+            if (size == nouns.length) {
+                nouns = Arrays.copyOf(nouns, Math.max(16, 2 * size));
+                synsets = Arrays.copyOf(synsets, nouns.length);
+            }
+            nouns[size] = noun;
+            synsets[size] = new int[0];
+            slots[i] = ++size;
+            if (2 * size > slots.length) {
+                slots = rehash(nouns, size, 2 * slots.length);
+            }
+            i = slot(nouns, slots, noun);
+        }
+        int id = slots[i] - 1;
+        int[] list = synsets[id];
+        int at = Arrays.binarySearch(list, synset);
+        if (at < 0) {
+            at = -at - 1;
+            int[] grown = new int[list.length + 1];
+            System.arraycopy(list, 0, grown, 0, at);
+            grown[at] = synset;
+            System.arraycopy(list, at, grown, at + 1, list.length - at);
+            synsets[id] = grown;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    String noun(int id) {
+        return nouns[id];
+    }
+
+    // the synset ids of the noun; shared, callers must not modify it
+    int[] synsets(int id) {
+        return synsets[id];
+    }
+
+    // the probe table, for serialisation
+    int[] slots() {
+        return slots;
+    }
+
+    Iterable<String> nouns() {
+        return Collections.unmodifiableList(Arrays.asList(nouns).subList(0, size));
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    // the slot holding noun, or the empty slot where it would be inserted
+    private static int slot(String[] nouns, int[] slots, String noun) {
+        int mask = slots.length - 1;
+        int i = spread(noun.hashCode()) & mask;
+        while (slots[i] != 0 && !nouns[slots[i] - 1].equals(noun)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private static int[] rehash(String[] nouns, int size, int capacity) {
+        int[] slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int i = spread(nouns[id].hashCode()) & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = id + 1;
+        }
+        return slots;
+    }
+
+    /**
+     * Accumulates (noun, synset) pairs. Synset lists are kept as linked entries
+     * in parallel int arrays until build() packs them into one array per noun.
+     */
+    static final class Builder {
+        private String[] nouns = new String[1024];
+        private int[] head = new int[1024];     // last entry of each noun, -1 when none
+        private int[] slots = new int[2048];
+        private int size;
+
+        private int[] entrySynset = new int[1024];
+        private int[] entryNext = new int[1024];
+        private int entries;
+
+        void add(String noun, int synset) {
+            int id = intern(noun);
+            if (entries == entrySynset.length) {
+                entrySynset = Arrays.copyOf(entrySynset, 2 * entries);
+                entryNext = Arrays.copyOf(entryNext, 2 * entries);
+            }
+            entrySynset[entries] = synset;
+            entryNext[entries] = head[id];
+            head[id] = entries++;
+        }
+
+        private int intern(String noun) {
+            int i = slot(nouns, slots, noun);
+            if (slots[i] != 0) {
+                return slots[i] - 1;
+            }
+            if (size == nouns.length) {
+                nouns = Arrays.copyOf(nouns, 2 * size);
+                head = Arrays.copyOf(head, 2 * size);
+            }
+            nouns[size] = noun;
+            head[size] = -1;
+            slots[i] = ++size;
+            if (2 * size > slots.length) {
+                slots = rehash(nouns, size, 2 * slots.length);
+            }
+            return size - 1;
+        }
+
+        NounTable build() {
+            String[] names = Arrays.copyOf(nouns, size);
+            int[][] lists = new int[size][];
+            for (int id = 0; id < size; id++) {
+                int n = 0;
+                for (int e = head[id]; e != -1; e = entryNext[e]) {
+                    n++;
+                }
+                int[] list = new int[n];
+                for (int e = head[id]; e != -1; e = entryNext[e]) {
+                    list[--n] = entrySynset[e];
+                }
+                Arrays.sort(list);
+                lists[id] = dedup(list);
+            }
+            return new NounTable(names, lists, slots);
+        }
+
+        private static int[] dedup(int[] sorted) {
+            int n = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[n++] = sorted[i];
+                }
+            }
+            return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+        }
+    }
+}
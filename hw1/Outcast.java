@@ -1,8 +1,23 @@
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdOut;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
 
 public class Outcast {
+    private static final int PARALLEL_THRESHOLD = 32;
+
     private final WordNet wordnet;
     
     public Outcast(WordNet wordnet)  { // constructor takes a WordNet object
@@ -11,31 +26,114 @@ public class Outcast {
     
     
     public String outcast(String[] nouns) {  // given an array of WordNet nouns, return an outcast
+        // one search per noun; every pair distance is then a merge of two ancestor vectors
+        long[][] reach = new long[nouns.length][];
+        rows(nouns.length).forEach(i -> reach[i] = wordnet.ancestorDistances(nouns[i]));
+
+        // the upper triangle of the symmetric distance matrix, one row per task
+        int[][] distances = new int[nouns.length][nouns.length];
+        rows(nouns.length).forEach(i -> {
+            for (int j = i + 1; j < nouns.length; j++) {
+                if (!nouns[i].equals(nouns[j])) {
+                    distances[i][j] = SAP.length(reach[i], reach[j]);
+                }
+            }
+        });
+
         // loop through nouns furthest distance
         String outcast = null;
         int maxDistance = 0;
-        
-        for (String n : nouns) {
+
+        for (int i = 0; i < nouns.length; i++) {
             int dist = 0;
-            for (String n2: nouns) {
-                if (!n.equals(n2)) {
-                    dist += wordnet.distance(n, n2);
-                }
+            for (int j = 0; j < nouns.length; j++) {
+                dist += i < j ? distances[i][j] : distances[j][i];
             }
             if (dist > maxDistance) {
                 maxDistance = dist;
-                outcast = n;
+                outcast = nouns[i];
             }
         }
         return outcast;
     }  
 
+    /**
+     * Reads groups of nouns, one whitespace separated group per line, and writes
+     * the outcast of each to out in input order, followed by a tab and the
+     * microseconds from submitting the group to finishing it. A group with a word
+     * that is not a WordNet noun yields "error: <message>" in its place.
+     *
+     * Groups are spread over a pool of workers sharing this Outcast. At most
+     * 2 * workers groups are in flight: when the window is full the reader waits
+     * for the oldest one and writes it, so a slow consumer holds back the input
+     * instead of letting results pile up.
+     */
+    public void serve(BufferedReader in, PrintStream out, int workers) throws IOException, InterruptedException {
+        if (null == in || null == out || workers < 1) {
+            throw new IllegalArgumentException("serve needs a reader, a writer and at least one worker");
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        Deque<Future<String>> window = new ArrayDeque<>();
+        try {
+            String line;
+            while (null != (line = in.readLine())) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (window.size() == 2 * workers) {
+                    write(window.removeFirst(), out);
+                }
+                String[] nouns = line.trim().split("\\s+");
+                long start = System.nanoTime();
+                window.addLast(pool.submit(() -> result(nouns, start)));
+            }
+            while (!window.isEmpty()) {
+                write(window.removeFirst(), out);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private String result(String[] nouns, long start) {
+        String result;
+        try {
+            result = outcast(nouns);
+        } catch (IllegalArgumentException e) {
+            result = "error: " + e.getMessage();
+        }
+        return result + "\t" + (System.nanoTime() - start) / 1000;
+    }
 
-    public static void main(String[] args) {  // see test client below
-        
+    private static void write(Future<String> result, PrintStream out) throws InterruptedException {
+        try {
+            out.println(result.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Outcast worker failed", e.getCause());
+        }
+        out.flush();
+    }
+
+    // small groups are not worth the fork/join overhead
+    private static IntStream rows(int n) {
+        IntStream rows = IntStream.range(0, n);
+        return n < PARALLEL_THRESHOLD ? rows : rows.parallel();
+    }
+
+
+    // synsets hypernyms outcast files..., or synsets hypernyms - [workers] to serve groups from standard input
+    public static void main(String[] args) throws IOException, InterruptedException {  // see test client below
+        // the WordNet is loaded once and shared by every outcast file that follows
         WordNet wordnet = new WordNet(args[0], args[1]);
         Outcast outcast = new Outcast(wordnet);
 
+        if (args.length == 2 || "-".equals(args[2])) {
+            int workers = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            outcast.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                          System.out, workers);
+            return;
+        }
+
         for (int t = 2; t < args.length; t++) {
             In in = new In(args[t]);
             String[] nouns = in.readAllStrings();
@@ -1,11 +1,12 @@
-import edu.princeton.cs.algs4.BreadthFirstDirectedPaths;
 import edu.princeton.cs.algs4.Digraph;
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 /*
@@ -15,22 +16,125 @@ import java.util.List;
 /**
  * All methods should throw a java.lang.IllegalArgumentException if any argument is null or 
  * if any argument vertex is invalid—not between 0 and G.V() - 1.
+ *
+ * Queries are thread-safe: any number of threads may call length(), ancestor(),
+ * the batch methods and the package-private searches concurrently on one SAP.
+ * Each search borrows a Processor from a small striped pool and returns it when
+ * done, so the graph is shared read-only and threads reuse their distance arrays
+ * and queues instead of allocating them per query. addVertex(), addEdge() and
+ * compact() change the graph and must not run concurrently with anything else.
  **/
 public class SAP {
-    private final Digraph graph;
+    private static final int CHAIN_PAIRS = 64;  // largest |v| * |w| answered pairwise from the chains
+
+    private CompactDigraph graph;          // adjacency as of construction or the last compact()
+    private Overlay overlay;               // edges added since then, null when there are none
+    private volatile CompactDigraph reverse;  // reverse of graph, built on first use
+    private int V;
+    private final WorkspacePool<Processor> pool = new WorkspacePool<>(Processor::new);  // pooled search state
+    private final SapCache cache;          // null when caching is disabled
+    private AncestorIndex index;           // null unless built with indexed = true
+    private ChainLca chains;               // constant time answers between chain vertices, null until buildChains()
+    private BitSet stale;                  // vertices whose ancestors changed since index and chains were built
+    private volatile SapListener listener; // null unless queries are instrumented
 
     
     public SAP(Digraph G) { // constructor takes a digraph (not necessarily a DAG)
+        this(G, 0);
+    }
+
+    // as above, remembering the results of the last cacheSize distinct queries (0 disables caching)
+    public SAP(Digraph G, int cacheSize) {
+        this(G, cacheSize, false);
+    }
+
+    // as above; when indexed, G must be a DAG and queries are answered from a precomputed AncestorIndex
+    public SAP(Digraph G, int cacheSize, boolean indexed) {
+        this(compact(G), cacheSize, indexed);
+    }
+
+    // the compact graph is immutable, so it is shared rather than copied
+    public SAP(CompactDigraph G, int cacheSize, boolean indexed) {
+        this(G, cacheSize, indexed ? new AncestorIndex(G) : null);
+    }
+
+    // with an index that was built for G earlier, e.g. loaded from a WordNetSnapshot
+    SAP(CompactDigraph G, int cacheSize, AncestorIndex index) {
         if (null == G) {
             throw new IllegalArgumentException("Null input to constructor");
         }
-        graph = new Digraph(G);
-        
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Negative cache size");
+        }
+        if (null != index && index.V() != G.V()) {
+            throw new IllegalArgumentException("Index does not match the graph");
+        }
+        graph = G;
+        V = G.V();
+        cache = cacheSize > 0 ? new SapCache(cacheSize) : null;
+        this.index = index;
+    }
+
+    // the current graph, with any added edges folded in
+    CompactDigraph graph() {
+        if (null != overlay || graph.V() != V) {
+            graph = graph.merge(V, null == overlay ? new int[0][] : overlay.out);
+            overlay = null;
+            reverse = null;
+        }
+        return graph;
+    }
+
+    // reverse of the compact graph; concurrent first callers may each build it, which is harmless
+    private CompactDigraph reverse() {
+        CompactDigraph r = reverse;
+        if (null == r) {
+            r = graph.reverse();
+            reverse = r;
+        }
+        return r;
+    }
+
+    private static CompactDigraph compact(Digraph G) {
+        if (null == G) {
+            throw new IllegalArgumentException("Null input to constructor");
+        }
+        return new CompactDigraph(G);
+    }
+
+    // the result cache, or null when caching is disabled
+    public SapCache cache() {
+        return cache;
+    }
+
+    // the ancestor index, or null when queries search the graph
+    public AncestorIndex index() {
+        return index;
+    }
+
+    /**
+     * Builds the table that answers queries between chain vertices (those whose
+     * ancestors all have one hypernym at most) in constant time. It takes several
+     * times the memory of the graph and a pass over it, so it is only built when
+     * asked for; compact() keeps it up to date from then on. Like addEdge(), this
+     * must not run concurrently with queries.
+     */
+    public void buildChains() {
+        chains = new ChainLca(graph());
+    }
+
+    // reports every following query to listener; null switches instrumentation off
+    public void setListener(SapListener listener) {
+        this.listener = listener;
+    }
+
+    public SapListener listener() {
+        return listener;
     }
 
 
     private boolean validIndex(int idx) {
-        if (idx < 0 || idx >= graph.V()) {
+        if (idx < 0 || idx >= V) {
             return false;
         }
         return true;
@@ -38,12 +142,216 @@ public class SAP {
 
     private boolean validIndex(Iterable<Integer> vertices) {
         for (Integer v : vertices) {
+            if (null == v || !validIndex(v)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean validIndex(int[] vertices) {
+        if (null == vertices) {
+            return false;
+        }
+        for (int v : vertices) {
             if (!validIndex(v)) {
                 return false;
             }
         }
         return true;
     }
+
+    private static int[] toArray(Iterable<Integer> vertices) {
+        int n = 0;
+        for (Integer v : vertices) {
+            n++;
+        }
+        int[] a = new int[n];
+        int i = 0;
+        for (int v : vertices) {
+            a[i++] = v;
+        }
+        return a;
+    }
+
+    // runs the query (v, w), consulting the cache first; returns the ancestor or the length
+    private int query(int v, int w, boolean wantAncestor) {
+        if (null != cache) {
+            return query(new int[] {v}, new int[] {w}, wantAncestor);
+        }
+        SapListener l = listener;
+        long start = null == l ? 0 : System.nanoTime();
+        Processor p = pool.acquire();
+        search(p, v, w);
+        int result = wantAncestor ? p.ancestor : p.distance;
+        if (null != l) {
+            report(l, p, start);
+        }
+        pool.release(p);
+        return result;
+    }
+
+    private int query(int[] v, int[] w, boolean wantAncestor) {
+        SapListener l = listener;
+        long start = null == l ? 0 : System.nanoTime();
+        SapCache.Key key = null;
+        if (null != cache) {
+            key = SapCache.key(v, w);
+            int[] hit = cache.get(key);
+            if (null != hit) {
+                if (null != l) {
+                    l.onQuery(0, 0, 0, true, System.nanoTime() - start);
+                }
+                return wantAncestor ? hit[1] : hit[0];
+            }
+        }
+        Processor p = pool.acquire();
+        search(p, v, w);
+        int distance = p.distance;
+        int ancestor = p.ancestor;
+        if (null != l) {
+            report(l, p, start);
+        }
+        pool.release(p);
+        if (null != cache) {
+            cache.put(key, distance, ancestor);
+        }
+        return wantAncestor ? ancestor : distance;
+    }
+
+    // hands the work done by p's last search to the listener; edges are counted only here
+    private void report(SapListener l, Processor p, long start) {
+        long nanos = System.nanoTime() - start;
+        int edges = p.scanned(p.queueA, p.expandedA) + p.scanned(p.queueB, p.expandedB);
+        l.onQuery(p.tailA + p.tailB + p.labels, edges, p.frontier, false, nanos);
+    }
+
+    private void search(Processor p, int v, int w) {
+        if (onChain(v) && onChain(w)) {
+            p.run(chains, v, w);
+        } else if (null == index || isStale(v) || isStale(w)) {
+            p.run(v, w);
+        } else {
+            p.run(index, v, w);
+        }
+    }
+
+    private void search(Processor p, int[] v, int[] w) {
+        if (v.length * w.length <= CHAIN_PAIRS && onChain(v) && onChain(w)) {
+            p.run(chains, v, w);
+        } else if (null == index || isStale(v) || isStale(w)) {
+            p.run(v, w);
+        } else {
+            p.run(index, v, w);
+        }
+    }
+
+    // true when the chains can answer for x: x is a chain vertex and none of its ancestors changed
+    private boolean onChain(int x) {
+        return null != chains && chains.contains(x) && (null == stale || !stale.get(x));
+    }
+
+    private boolean onChain(int[] vertices) {
+        for (int x : vertices) {
+            if (!onChain(x)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // true when the index cannot answer for x because x or one of its ancestors changed
+    private boolean isStale(int x) {
+        return x >= index.V() || (null != stale && stale.get(x));
+    }
+
+    private boolean isStale(int[] vertices) {
+        for (int x : vertices) {
+            if (isStale(x)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // adds a vertex with no edges and returns its id
+    public int addVertex() {
+        return V++;
+    }
+
+    /**
+     * Adds the edge v->w. Only the descendants of v (v included) can have new
+     * ancestors, so only cached results involving them are dropped and only
+     * their index labels and chains are marked stale; both cost time proportional
+     * to the number of descendants rather than to the size of the graph.
+     */
+    public void addEdge(int v, int w) {
+        if (!validIndex(v) || !validIndex(w)) {
+            throw new IllegalArgumentException("Invalid index passed to addEdge");
+        }
+        if (hasEdge(v, w)) {
+            return;
+        }
+        if (null == overlay) {
+            overlay = new Overlay();
+        }
+        overlay.add(v, w);
+
+        Processor p = pool.acquire();
+        int n = p.descendants(v, reverse(), overlay.in);
+        if (null != cache) {
+            cache.invalidate(p::marked);
+        }
+        if (null == stale) {
+            stale = new BitSet();
+        }
+        for (int i = 0; i < n; i++) {
+            stale.set(p.queueA[i]);
+        }
+        pool.release(p);
+    }
+
+    private boolean hasEdge(int v, int w) {
+        if (v < graph.V()) {
+            for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; k++) {
+                if (graph.targets[k] == w) {
+                    return true;
+                }
+            }
+        }
+        int[] added = null == overlay ? null : overlay.out(v);
+        if (null != added) {
+            for (int x : added) {
+                if (x == w) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // is there a directed path from v to w; only the ancestors of v are visited
+    boolean hasPath(int v, int w) {
+        if (!validIndex(v) || !validIndex(w)) {
+            throw new IllegalArgumentException("Invalid index passed to hasPath");
+        }
+        Processor p = pool.acquire();
+        boolean reaches = p.reaches(v, w);
+        pool.release(p);
+        return reaches;
+    }
+
+    // folds added edges into a new compact graph and rebuilds a stale index and chain table
+    public void compact() {
+        graph();
+        if (null != index && (null != stale || index.V() != V)) {
+            index = new AncestorIndex(graph);
+        }
+        if (null != chains && (null != stale || chains.V() != V)) {
+            chains = new ChainLca(graph);
+        }
+        stale = null;
+    }
     
     
     // length of shortest ancestral path between v and w; -1 if no such path
@@ -52,8 +360,7 @@ public class SAP {
             throw new IllegalArgumentException("Invalid indexe passed to length");
         }
          
-        Processor p = new Processor(v, w);
-        return p.distance;
+        return query(v, w, false);
     }
     
     // a common ancestor of v and w that participates in a shortest ancestral path; -1 if no such path
@@ -62,8 +369,7 @@ public class SAP {
             throw new IllegalArgumentException("Invalid indexe passed to ancestor");
         }
 
-        Processor p = new Processor(v, w);
-        return p.ancestor;
+        return query(v, w, true);
     }
     
     // length of shortest ancestral path between any vertex in v and any vertex in w; -1 if no such path
@@ -72,8 +378,7 @@ public class SAP {
             throw new IllegalArgumentException("Invalid indexe passed to length");
         }
 
-        Processor p = new Processor(v, w);
-        return p.distance;
+        return query(toArray(v), toArray(w), false);
     }
 
     // a common ancestor that participates in shortest ancestral path; -1 if no such path
@@ -82,8 +387,184 @@ public class SAP {
             throw new IllegalArgumentException("Invalid indexe passed to ancestor");
         }
 
-        Processor p = new Processor(v, w);
-        return p.ancestor;
+        return query(toArray(v), toArray(w), true);
+    }
+
+    // as length(Iterable, Iterable), for callers that already hold the vertex sets as arrays
+    public int length(int[] v, int[] w) {
+        if (!validIndex(v) || !validIndex(w)) {
+            throw new IllegalArgumentException("Invalid indexe passed to length");
+        }
+
+        return query(v, w, false);
+    }
+
+    // as ancestor(Iterable, Iterable), for callers that already hold the vertex sets as arrays
+    public int ancestor(int[] v, int[] w) {
+        if (!validIndex(v) || !validIndex(w)) {
+            throw new IllegalArgumentException("Invalid indexe passed to ancestor");
+        }
+
+        return query(v, w, true);
+    }
+
+    // lengths[i] is length(v[i], w[i]); the pairs are spread over the common ForkJoinPool
+    public int[] lengths(int[] v, int[] w) {
+        validatePairs(v, w);
+        Batch batch = new Batch(v, w, null, null);
+        ForkJoinPool.commonPool().invoke(batch);
+        return batch.lengths;
+    }
+
+    // ancestors[i] is ancestor(v[i], w[i])
+    public int[] ancestors(int[] v, int[] w) {
+        validatePairs(v, w);
+        Batch batch = new Batch(v, w, null, null);
+        ForkJoinPool.commonPool().invoke(batch);
+        return batch.ancestors;
+    }
+
+    // lengths[i] is the length between the vertex sets v[i] and w[i]
+    public int[] lengths(int[][] v, int[][] w) {
+        validatePairs(v, w);
+        Batch batch = new Batch(null, null, v, w);
+        ForkJoinPool.commonPool().invoke(batch);
+        return batch.lengths;
+    }
+
+    // ancestors[i] is the ancestor between the vertex sets v[i] and w[i]
+    public int[] ancestors(int[][] v, int[][] w) {
+        validatePairs(v, w);
+        Batch batch = new Batch(null, null, v, w);
+        ForkJoinPool.commonPool().invoke(batch);
+        return batch.ancestors;
+    }
+
+    private void validatePairs(int[] v, int[] w) {
+        if (null == v || null == w || v.length != w.length) {
+            throw new IllegalArgumentException("Batch arguments must be non-null and of equal length");
+        }
+        for (int i = 0; i < v.length; i++) {
+            if (!validIndex(v[i]) || !validIndex(w[i])) {
+                throw new IllegalArgumentException("Invalid index passed to batch at " + i);
+            }
+        }
+    }
+
+    private void validatePairs(int[][] v, int[][] w) {
+        if (null == v || null == w || v.length != w.length) {
+            throw new IllegalArgumentException("Batch arguments must be non-null and of equal length");
+        }
+        for (int i = 0; i < v.length; i++) {
+            if (null == v[i] || null == w[i]) {
+                throw new IllegalArgumentException("Null vertex set passed to batch at " + i);
+            }
+            for (int x : v[i]) {
+                if (!validIndex(x)) {
+                    throw new IllegalArgumentException("Invalid index passed to batch at " + i);
+                }
+            }
+            for (int x : w[i]) {
+                if (!validIndex(x)) {
+                    throw new IllegalArgumentException("Invalid index passed to batch at " + i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Every vertex reachable from the given sources with its distance, packed as
+     * (ancestor << 32) | distance and sorted by ancestor. Two such vectors are
+     * enough to answer length() between their source sets by a merge, which lets
+     * callers reuse one search for many partners.
+     */
+    long[] ancestorDistances(int[] sources) {
+        for (int x : sources) {
+            if (!validIndex(x)) {
+                throw new IllegalArgumentException("Invalid index passed to ancestorDistances");
+            }
+        }
+        Processor p = pool.acquire();
+        long[] reach = null == index || isStale(sources) ? p.reach(sources) : p.reach(index, sources);
+        pool.release(p);
+        return reach;
+    }
+
+    // length between the source sets of two ancestorDistances() vectors; -1 if no common ancestor
+    static int length(long[] a, long[] b) {
+        int best = Integer.MAX_VALUE;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            long x = a[i] >>> 32;
+            long y = b[j] >>> 32;
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                best = Math.min(best, (int) a[i] + (int) b[j]);
+                i++;
+                j++;
+            }
+        }
+        return Integer.MAX_VALUE == best ? -1 : best;
+    }
+
+    /**
+     * Edges added after the compact graph was built, in both directions, as one
+     * small array per vertex that has any.
+     */
+    private static final class Overlay {
+        int[][] out = new int[0][];
+        int[][] in = new int[0][];
+
+        void add(int v, int w) {
+            out = append(out, v, w);
+            in = append(in, w, v);
+        }
+
+        int[] out(int v) {
+            return v < out.length ? out[v] : null;
+        }
+
+        private static int[][] append(int[][] lists, int v, int w) {
+            if (v >= lists.length) {
+                lists = Arrays.copyOf(lists, Math.max(v + 1, 2 * lists.length));
+            }
+            int[] list = lists[v];
+            if (null == list) {
+                lists[v] = new int[] {w};
+            } else {
+                list = Arrays.copyOf(list, list.length + 1);
+                list[list.length - 1] = w;
+                lists[v] = list;
+            }
+            return lists;
+        }
+    }
+
+    // receives the vertices found by nearest(); returning false ends the search
+    interface Visitor {
+        boolean visit(int vertex, int distance);
+    }
+
+    /**
+     * Visits every vertex w with a common ancestor with the sources, in nondecreasing
+     * order of length(sources, w), until the visitor returns false. The search goes
+     * up from the sources and, from every vertex it reaches, down through the
+     * reverse graph, so it only touches the neighbourhood it reports.
+     */
+    void nearest(int[] sources, Visitor visitor) {
+        if (!validIndex(sources)) {
+            throw new IllegalArgumentException("Invalid index passed to nearest");
+        }
+        Processor p = pool.acquire();
+        try {
+            p.nearest(sources, reverse(), visitor);
+        } finally {
+            pool.release(p);
+        }
     }
 
     // do unit testing of this class
@@ -100,46 +581,509 @@ public class SAP {
         }
     }
 
+    /**
+     * Answers a range of batch queries, splitting it in halves until it is small
+     * enough to run on one worker. Each leaf borrows one pooled Processor for its
+     * whole range, so the scratch arrays are reused across tasks rather than
+     * allocated once per task. Batches bypass the result cache.
+     */
+    private class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int MIN_CHUNK = 64;
+
+        final int[] lengths;
+        final int[] ancestors;
+
+        private final int[] v;
+        private final int[] w;
+        private final int[][] vs;
+        private final int[][] ws;
+        private final int lo;
+        private final int hi;
+        private final int chunk;
+
+        Batch(int[] v, int[] w, int[][] vs, int[][] ws) {
+            this(v, w, vs, ws, null == v ? vs.length : v.length);
+        }
+
+        private Batch(int[] v, int[] w, int[][] vs, int[][] ws, int n) {
+            this(v, w, vs, ws, new int[n], new int[n], 0, n,
+                 Math.max(MIN_CHUNK, n / (8 * ForkJoinPool.getCommonPoolParallelism())));
+        }
+
+        private Batch(int[] v, int[] w, int[][] vs, int[][] ws, int[] lengths, int[] ancestors,
+                      int lo, int hi, int chunk) {
+            this.v = v;
+            this.w = w;
+            this.vs = vs;
+            this.ws = ws;
+            this.lengths = lengths;
+            this.ancestors = ancestors;
+            this.lo = lo;
+            this.hi = hi;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > chunk) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Batch(v, w, vs, ws, lengths, ancestors, lo, mid, chunk),
+                          new Batch(v, w, vs, ws, lengths, ancestors, mid, hi, chunk));
+                return;
+            }
+            Processor p = pool.acquire();
+            SapListener l = listener;
+            for (int i = lo; i < hi; i++) {
+                long start = null == l ? 0 : System.nanoTime();
+                if (null == vs) {
+                    search(p, v[i], w[i]);
+                } else {
+                    search(p, vs[i], ws[i]);
+                }
+                lengths[i] = p.distance;
+                ancestors[i] = p.ancestor;
+                if (null != l) {
+                    report(l, p, start);
+                }
+            }
+            pool.release(p);
+        }
+    }
+
+    /**
+     * Bidirectional breadth-first search that grows both frontiers level by level
+     * and stops once no undiscovered vertex can beat the best ancestor found so far.
+     * The distTo arrays are allocated once and invalidated by bumping an epoch
+     * stamp, so a query only pays for the part of the graph it actually visits.
+     */
     private class Processor {
+        private static final int INFINITY = Integer.MAX_VALUE;
+
         int ancestor;
         int distance;
-        
-        public Processor(int v, int w) {
-            BreadthFirstDirectedPaths pathsA = new BreadthFirstDirectedPaths(graph, v);
-            BreadthFirstDirectedPaths pathsB = new BreadthFirstDirectedPaths(graph, w);
-            process(pathsA, pathsB);
+
+        private int[] distA;
+        private int[] distB;
+        private int[] markA;     // distA[i] is valid only when markA[i] == epoch
+        private int[] markB;
+        private int[] queueA;
+        private int[] queueB;
+        private int tailA;
+        private int tailB;
+        private int epoch;
+
+        // work done by the last run(), for SapListener
+        private int expandedA;   // queueA[0, expandedA) had their edges scanned
+        private int expandedB;
+        private int frontier;    // largest level expanded
+        private int labels;      // ancestor index entries read
+
+        Processor() {
+            int n = V;
+            distA = new int[n];
+            distB = new int[n];
+            markA = new int[n];
+            markB = new int[n];
+            queueA = new int[n];
+            queueB = new int[n];
         }
 
-        public Processor(Iterable<Integer> v, Iterable<Integer> w) {
-            BreadthFirstDirectedPaths pathsA = new BreadthFirstDirectedPaths(graph, v);
-            BreadthFirstDirectedPaths pathsB = new BreadthFirstDirectedPaths(graph, w);
-            process(pathsA, pathsB);
+        void run(int v, int w) {
+            begin();
+            seedA(v);
+            seedB(w);
+            search();
         }
 
-        private void process(BreadthFirstDirectedPaths pathsA, BreadthFirstDirectedPaths pathsB) {
-            List<Integer> ancestors = new ArrayList<>();
+        void run(int[] v, int[] w) {
+            begin();
+            for (int x : v) {
+                seedA(x);
+            }
+            for (int x : w) {
+                seedB(x);
+            }
+            search();
+        }
 
-            for (int i = 0; i < graph.V(); i++) {
-                if (pathsA.hasPathTo(i) && pathsB.hasPathTo(i)) {
-                    ancestors.add(i);
+        // intersect the two sorted ancestor labels
+        void run(AncestorIndex index, int v, int w) {
+            begin();
+            int i = index.start[v];
+            int j = index.start[w];
+            int endV = index.end[v];
+            int endW = index.end[w];
+            while (i < endV && j < endW) {
+                int a = index.ancestors[i];
+                int b = index.ancestors[j];
+                if (a < b) {
+                    i++;
+                } else if (a > b) {
+                    j++;
+                } else {
+                    int d = index.dists[i] + index.dists[j];
+                    if (d < distance) {
+                        distance = d;
+                        ancestor = a;
+                    }
+                    i++;
+                    j++;
                 }
             }
+            labels = i - index.start[v] + j - index.start[w];
+            if (INFINITY == distance) {
+                distance = -1;
+            }
+        }
+
+        // both ends are chain vertices: their lowest common ancestor is the only candidate
+        void run(ChainLca chains, int v, int w) {
+            begin();
+            ancestor = chains.lca(v, w);
+            distance = ancestor < 0 ? -1 : chains.depth(v) + chains.depth(w) - 2 * chains.depth(ancestor);
+        }
 
-            int shortestPathAncestor = -1;
-            int minDistance = Integer.MAX_VALUE;
-            for (int ancestor : ancestors) {
-                int dist = pathsA.distTo(ancestor) + pathsB.distTo(ancestor);
-                if (dist < minDistance) {
-                    minDistance = dist;
-                    shortestPathAncestor = ancestor;
+        void run(ChainLca chains, int[] v, int[] w) {
+            begin();
+            for (int x : v) {
+                for (int y : w) {
+                    int a = chains.lca(x, y);
+                    if (a >= 0 && chains.depth(x) + chains.depth(y) - 2 * chains.depth(a) < distance) {
+                        distance = chains.depth(x) + chains.depth(y) - 2 * chains.depth(a);
+                        ancestor = a;
+                    }
                 }
             }
-            if (Integer.MAX_VALUE == minDistance) {
+            if (INFINITY == distance) {
                 distance = -1;
+            }
+        }
+
+        // combine the labels of v into distA, then probe it with the labels of w
+        void run(AncestorIndex index, int[] v, int[] w) {
+            begin();
+            for (int x : v) {
+                labels += index.end[x] - index.start[x];
+                for (int i = index.start[x]; i < index.end[x]; i++) {
+                    int a = index.ancestors[i];
+                    if (markA[a] != epoch || index.dists[i] < distA[a]) {
+                        markA[a] = epoch;
+                        distA[a] = index.dists[i];
+                    }
+                }
+            }
+            for (int x : w) {
+                labels += index.end[x] - index.start[x];
+                for (int i = index.start[x]; i < index.end[x]; i++) {
+                    int a = index.ancestors[i];
+                    if (markA[a] == epoch && distA[a] + index.dists[i] < distance) {
+                        distance = distA[a] + index.dists[i];
+                        ancestor = a;
+                    }
+                }
+            }
+            if (INFINITY == distance) {
+                distance = -1;
+            }
+        }
+
+        // breadth-first search from the sources on the A side only, collecting every vertex reached
+        long[] reach(int[] sources) {
+            begin();
+            for (int x : sources) {
+                seedA(x);
+            }
+            int head = 0;
+            int depth = 0;
+            while (head < tailA) {
+                int end = tailA;
+                tailA = expand(queueA, head, end, depth, distA, markA, distB, markB);
+                head = end;
+                depth++;
+            }
+            return collect(queueA, tailA);
+        }
+
+        long[] reach(AncestorIndex index, int[] sources) {
+            begin();
+            for (int x : sources) {
+                for (int i = index.start[x]; i < index.end[x]; i++) {
+                    int a = index.ancestors[i];
+                    if (markA[a] != epoch) {
+                        markA[a] = epoch;
+                        distA[a] = index.dists[i];
+                        queueA[tailA++] = a;
+                    } else if (index.dists[i] < distA[a]) {
+                        distA[a] = index.dists[i];
+                    }
+                }
+            }
+            return collect(queueA, tailA);
+        }
+
+        // marks every vertex with a path to source, following edges backwards; returns their count
+        int descendants(int source, CompactDigraph reverse, int[][] addedIn) {
+            begin();
+            seedA(source);
+            for (int head = 0; head < tailA; head++) {
+                int x = queueA[head];
+                if (x < reverse.V()) {
+                    for (int k = reverse.offsets[x]; k < reverse.offsets[x + 1]; k++) {
+                        seedA(reverse.targets[k]);
+                    }
+                }
+                if (x < addedIn.length && null != addedIn[x]) {
+                    for (int y : addedIn[x]) {
+                        seedA(y);
+                    }
+                }
+            }
+            return tailA;
+        }
+
+        // breadth-first over (vertex, direction) states: A holds vertices reached going up, B going down
+        void nearest(int[] sources, CompactDigraph reverse, Visitor visitor) {
+            begin();
+            for (int x : sources) {
+                if (markA[x] != epoch) {
+                    seedA(x);
+                    if (!visitor.visit(x, 0)) {
+                        return;
+                    }
+                }
+            }
+            int[][] addedOut = null == overlay ? null : overlay.out;
+            int[][] addedIn = null == overlay ? null : overlay.in;
+            int headA = 0;
+            int headB = 0;
+            int depth = 0;
+            while (headA < tailA || headB < tailB) {
+                int endA = tailA;
+                int endB = tailB;
+                for (int i = headA; i < endA; i++) {
+                    if (!step(queueA[i], depth, graph, addedOut, true, visitor)) {
+                        return;
+                    }
+                }
+                for (int i = headA; i < endA; i++) {
+                    if (!step(queueA[i], depth, reverse, addedIn, false, visitor)) {
+                        return;
+                    }
+                }
+                for (int i = headB; i < endB; i++) {
+                    if (!step(queueB[i], depth, reverse, addedIn, false, visitor)) {
+                        return;
+                    }
+                }
+                headA = endA;
+                headB = endB;
+                depth++;
+            }
+        }
+
+        // enqueue the unvisited neighbours of x in one direction; false when the visitor stops
+        private boolean step(int x, int depth, CompactDigraph g, int[][] added, boolean up, Visitor visitor) {
+            if (x < g.V()) {
+                for (int k = g.offsets[x]; k < g.offsets[x + 1]; k++) {
+                    if (!reached(g.targets[k], depth + 1, up, visitor)) {
+                        return false;
+                    }
+                }
+            }
+            if (null != added && x < added.length && null != added[x]) {
+                for (int y : added[x]) {
+                    if (!reached(y, depth + 1, up, visitor)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private boolean reached(int y, int distance, boolean up, Visitor visitor) {
+            int[] mark = up ? markA : markB;
+            if (mark[y] == epoch) {
+                return true;
+            }
+            boolean reported = markA[y] == epoch || markB[y] == epoch;
+            mark[y] = epoch;
+            if (up) {
+                queueA[tailA++] = y;
             } else {
-                distance = minDistance;
+                queueB[tailB++] = y;
+            }
+            return reported || visitor.visit(y, distance);
+        }
+
+        // was x visited by the last search from the A side
+        boolean marked(int x) {
+            return x < markA.length && markA[x] == epoch;
+        }
+
+        // breadth-first search from source that stops as soon as target is reached
+        boolean reaches(int source, int target) {
+            begin();
+            seedA(source);
+            int head = 0;
+            int depth = 0;
+            while (head < tailA) {
+                if (markA[target] == epoch) {
+                    return true;
+                }
+                int end = tailA;
+                tailA = expand(queueA, head, end, depth, distA, markA, distB, markB);
+                head = end;
+                depth++;
+            }
+            return markA[target] == epoch;
+        }
+
+        private long[] collect(int[] vertices, int n) {
+            long[] packed = new long[n];
+            for (int i = 0; i < n; i++) {
+                packed[i] = ((long) vertices[i] << 32) | distA[vertices[i]];
+            }
+            Arrays.sort(packed);
+            return packed;
+        }
+
+        private void begin() {
+            if (markA.length < V) {
+                // vertices were added since this processor was created
+                int n = Math.max(V, 2 * markA.length);
+                distA = Arrays.copyOf(distA, n);
+                distB = Arrays.copyOf(distB, n);
+                markA = Arrays.copyOf(markA, n);
+                markB = Arrays.copyOf(markB, n);
+                queueA = Arrays.copyOf(queueA, n);
+                queueB = Arrays.copyOf(queueB, n);
+            }
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(markA, 0);
+                Arrays.fill(markB, 0);
+                epoch = 0;
+            }
+            epoch++;
+            tailA = 0;
+            tailB = 0;
+            expandedA = 0;
+            expandedB = 0;
+            frontier = 0;
+            labels = 0;
+            distance = INFINITY;
+            ancestor = -1;
+        }
+
+        private void seedA(int x) {
+            if (markA[x] != epoch) {
+                markA[x] = epoch;
+                distA[x] = 0;
+                queueA[tailA++] = x;
+            }
+        }
+
+        private void seedB(int x) {
+            if (markB[x] != epoch) {
+                markB[x] = epoch;
+                distB[x] = 0;
+                queueB[tailB++] = x;
+                if (markA[x] == epoch) {
+                    distance = 0;
+                    ancestor = x;
+                }
+            }
+        }
+
+        private void search() {
+            int headA = 0;
+            int headB = 0;
+            int depthA = 0;
+            int depthB = 0;
+
+            while (headA < tailA || headB < tailB) {
+                // anything not yet seen by a side is at least one level beyond its frontier
+                int boundA = headA < tailA ? depthA + 1 : INFINITY;
+                int boundB = headB < tailB ? depthB + 1 : INFINITY;
+                if (distance <= Math.min(boundA, boundB)) {
+                    break;
+                }
+
+                if (headA < tailA && (headB == tailB || depthA <= depthB)) {
+                    int end = tailA;
+                    frontier = Math.max(frontier, end - headA);
+                    tailA = expand(queueA, headA, end, depthA, distA, markA, distB, markB);
+                    headA = end;
+                    depthA++;
+                } else {
+                    int end = tailB;
+                    frontier = Math.max(frontier, end - headB);
+                    tailB = expand(queueB, headB, end, depthB, distB, markB, distA, markA);
+                    headB = end;
+                    depthB++;
+                }
+            }
+            expandedA = headA;
+            expandedB = headB;
+
+            if (INFINITY == distance) {
+                distance = -1;
+            }
+        }
+
+        // number of edges out of queue[0, n), overlay included
+        int scanned(int[] queue, int n) {
+            int edges = 0;
+            for (int i = 0; i < n; i++) {
+                int x = queue[i];
+                if (x < graph.V()) {
+                    edges += graph.outdegree(x);
+                }
+                int[] added = null == overlay ? null : overlay.out(x);
+                if (null != added) {
+                    edges += added.length;
+                }
+            }
+            return edges;
+        }
+
+        // expand one level of the frontier queue[head, end); returns the new tail
+        private int expand(int[] queue, int head, int end, int depth,
+                           int[] dist, int[] mark, int[] otherDist, int[] otherMark) {
+            int[] offsets = graph.offsets;
+            int[] targets = graph.targets;
+            int compactV = graph.V();
+            int[][] added = null == overlay ? null : overlay.out;
+            int tail = end;
+            for (int i = head; i < end; i++) {
+                int x = queue[i];
+                if (x < compactV) {
+                    for (int k = offsets[x]; k < offsets[x + 1]; k++) {
+                        tail = visit(targets[k], depth, queue, tail, dist, mark, otherDist, otherMark);
+                    }
+                }
+                if (null != added && x < added.length && null != added[x]) {
+                    for (int y : added[x]) {
+                        tail = visit(y, depth, queue, tail, dist, mark, otherDist, otherMark);
+                    }
+                }
+            }
+            return tail;
+        }
+
+        private int visit(int y, int depth, int[] queue, int tail,
+                          int[] dist, int[] mark, int[] otherDist, int[] otherMark) {
+            if (mark[y] == epoch) {
+                return tail;
+            }
+            mark[y] = epoch;
+            dist[y] = depth + 1;
+            queue[tail++] = y;
+            if (otherMark[y] == epoch && depth + 1 + otherDist[y] < distance) {
+                distance = depth + 1 + otherDist[y];
+                ancestor = y;
             }
-            ancestor = shortestPathAncestor;
+            return tail;
         }
     }
         
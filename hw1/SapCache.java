@@ -0,0 +1,180 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+
+/**
+ * Bounded least-recently-used cache of shortest ancestral path results.
+ * Keys are the canonicalised (sorted, de-duplicated) vertex sets of a query,
+ * ordered so that (v, w) and (w, v) share an entry. Each entry holds the
+ * length and the ancestor together so length() and ancestor() on the same
+ * pair cost a single search. All methods are thread-safe.
+ */
+public class SapCache {
+    private final int capacity;
+    private final LinkedHashMap<Key, int[]> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public SapCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.capacity = capacity;
+        // access ordered so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<Key, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                if (size() > SapCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // canonical key for the query (v, w); the arrays are not modified
+    static Key key(int[] v, int[] w) {
+        int[] a = canonical(v);
+        int[] b = canonical(w);
+        if (compare(a, b) > 0) {
+            int[] t = a;
+            a = b;
+            b = t;
+        }
+        return new Key(a, b);
+    }
+
+    // returns {length, ancestor} or null when the pair is not cached
+    synchronized int[] get(Key key) {
+        int[] result = entries.get(key);
+        if (null == result) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    synchronized void put(Key key, int length, int ancestor) {
+        entries.put(key, new int[] {length, ancestor});
+    }
+
+    // drops every entry whose query involves a vertex matching affected
+    synchronized void invalidate(IntPredicate affected) {
+        Iterator<Key> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            Key key = keys.next();
+            if (key.involves(affected)) {
+                keys.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    // entries dropped because the graph changed under them
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("size = %d/%d, hits = %d, misses = %d, evictions = %d, invalidations = %d",
+                             entries.size(), capacity, hits, misses, evictions, invalidations);
+    }
+
+    private static int[] canonical(int[] vertices) {
+        int[] a = vertices.clone();
+        Arrays.sort(a);
+        int n = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (i == 0 || a[i] != a[i - 1]) {
+                a[n++] = a[i];
+            }
+        }
+        return n == a.length ? a : Arrays.copyOf(a, n);
+    }
+
+    private static int compare(int[] a, int[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    static final class Key {
+        private final int[] v;
+        private final int[] w;
+        private final int hash;
+
+        Key(int[] v, int[] w) {
+            this.v = v;
+            this.w = w;
+            this.hash = 31 * Arrays.hashCode(v) + Arrays.hashCode(w);
+        }
+
+        boolean involves(IntPredicate affected) {
+            for (int x : v) {
+                if (affected.test(x)) {
+                    return true;
+                }
+            }
+            for (int x : w) {
+                if (affected.test(x)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && Arrays.equals(v, other.v) && Arrays.equals(w, other.w);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
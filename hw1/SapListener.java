@@ -0,0 +1,16 @@
+/**
+ * Receives a callback after every SAP query, on the thread that ran it. A SAP
+ * without a listener does not time or measure anything, so instrumentation
+ * costs nothing unless it is switched on. Implementations must be thread-safe
+ * and quick, since they run inside the query.
+ */
+public interface SapListener {
+    /**
+     * @param vertices vertices discovered by the search, or ancestor index entries read
+     * @param edges    edges scanned while expanding the search frontiers
+     * @param frontier size of the largest frontier level expanded
+     * @param cached   true when the result came from the cache and nothing was searched
+     * @param nanos    latency of the query, cache lookup included
+     */
+    void onQuery(int vertices, int edges, int frontier, boolean cached, long nanos);
+}
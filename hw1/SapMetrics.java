@@ -0,0 +1,188 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+
+/**
+ * SapListener that aggregates query counts, work per query and a latency
+ * histogram, and can be published as an MXBean. The histogram has log-linear
+ * buckets in the style of HdrHistogram: each power of two of nanoseconds is split
+ * into 16 sub-buckets, so percentiles are within about 6% of the true value and
+ * the whole range of a long fits in 960 counters. Recording is lock-free.
+ */
+public class SapMetrics implements SapListener, SapMetricsMXBean {
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder vertices = new LongAdder();
+    private final LongAdder edges = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAccumulator maxFrontier = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray latency = new AtomicLongArray(BUCKETS);
+
+    @Override
+    public void onQuery(int vertices, int edges, int frontier, boolean cached, long nanos) {
+        queries.increment();
+        if (cached) {
+            cacheHits.increment();
+        }
+        this.vertices.add(vertices);
+        this.edges.add(edges);
+        this.nanos.add(nanos);
+        maxFrontier.accumulate(frontier);
+        maxNanos.accumulate(nanos);
+        latency.incrementAndGet(bucket(Math.max(0, nanos)));
+    }
+
+    // registers this as an MXBean named algs4:type=SapMetrics,name=<name> with the platform server
+    public void register(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                             .registerMBean(this, new ObjectName("algs4:type=SapMetrics,name=" + name));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Could not register SapMetrics " + name, e);
+        }
+    }
+
+    @Override
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        return ratio(cacheHits.sum(), queries.sum());
+    }
+
+    @Override
+    public double getMeanVertices() {
+        return ratio(vertices.sum(), queries.sum());
+    }
+
+    @Override
+    public double getMeanEdges() {
+        return ratio(edges.sum(), queries.sum());
+    }
+
+    @Override
+    public int getMaxFrontier() {
+        return (int) maxFrontier.get();
+    }
+
+    @Override
+    public double getMeanLatencyMicros() {
+        return ratio(nanos.sum(), queries.sum()) / 1000.0;
+    }
+
+    @Override
+    public double getLatencyP50Micros() {
+        return percentile(0.50) / 1000.0;
+    }
+
+    @Override
+    public double getLatencyP90Micros() {
+        return percentile(0.90) / 1000.0;
+    }
+
+    @Override
+    public double getLatencyP99Micros() {
+        return percentile(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getLatencyP999Micros() {
+        return percentile(0.999) / 1000.0;
+    }
+
+    @Override
+    public double getMaxLatencyMicros() {
+        return maxNanos.get() / 1000.0;
+    }
+
+    // not atomic with respect to concurrent queries, which may be half counted
+    @Override
+    public void reset() {
+        queries.reset();
+        cacheHits.reset();
+        vertices.reset();
+        edges.reset();
+        nanos.reset();
+        maxFrontier.reset();
+        maxNanos.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            latency.set(i, 0);
+        }
+    }
+
+    /**
+     * Latency in nanoseconds below which the fraction p of the recorded queries
+     * fall, rounded up to the end of its bucket; 0 when nothing was recorded.
+     */
+    public long percentile(double p) {
+        if (p < 0 || p > 1) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1");
+        }
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latency.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i + 1 < BUCKETS ? lowest(i + 1) - 1 : Long.MAX_VALUE;
+            }
+        }
+        return maxNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queries = %d, cache hit rate = %.3f, vertices/query = %.1f, edges/query = %.1f, "
+                             + "max frontier = %d, latency us: mean = %.1f, p50 = %.1f, p99 = %.1f, max = %.1f",
+                             getQueries(), getCacheHitRate(), getMeanVertices(), getMeanEdges(), getMaxFrontier(),
+                             getMeanLatencyMicros(), getLatencyP50Micros(), getLatencyP99Micros(),
+                             getMaxLatencyMicros());
+    }
+
+    // values below SUB get a bucket each, then SUB buckets per power of two
+    static int bucket(long value) {
+        if (value < SUB) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB - 1);
+        return (exponent - SUB_BITS + 1) * SUB + sub;
+    }
+
+    // the smallest value that falls in the bucket
+    static long lowest(int bucket) {
+        if (bucket < SUB) {
+            return bucket;
+        }
+        int exponent = bucket / SUB + SUB_BITS - 1;
+        return (long) (SUB | (bucket % SUB)) << (exponent - SUB_BITS);
+    }
+
+    private static double ratio(long a, long b) {
+        return b == 0 ? 0.0 : (double) a / b;
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * JMX view of a SapMetrics. Latencies are in microseconds and percentiles are
+ * the upper bound of the histogram bucket holding them.
+ */
+public interface SapMetricsMXBean {
+    long getQueries();
+
+    long getCacheHits();
+
+    double getCacheHitRate();
+
+    double getMeanVertices();
+
+    double getMeanEdges();
+
+    int getMaxFrontier();
+
+    double getMeanLatencyMicros();
+
+    double getLatencyP50Micros();
+
+    double getLatencyP90Micros();
+
+    double getLatencyP99Micros();
+
+    double getLatencyP999Micros();
+
+    double getMaxLatencyMicros();
+
+    void reset();
+}
@@ -0,0 +1,132 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+
+/**
+ * Synset strings and glosses kept off the heap. The UTF-8 bytes of every synset
+ * and its gloss sit back to back in one direct ByteBuffer; the heap only holds
+ * an int index of three offsets per synset id (synset start, gloss start, end).
+ * Strings are decoded when they are asked for, so the glosses of a whole
+ * dictionary cost the heap nothing until they are displayed.
+ */
+final class SynsetStore {
+    private ByteBuffer bytes;       // direct; [0, used) holds data
+    private int used;
+    private int[] index;            // 3 per id; index[3 * id] is -1 when the id is unused
+    private int size;               // one past the largest id
+
+    SynsetStore(int ids, int capacity) {
+        bytes = ByteBuffer.allocateDirect(Math.max(16, capacity));
+        index = new int[3 * Math.max(16, ids)];
+        Arrays.fill(index, -1);
+    }
+
+    // takes ownership of the buffer and index, e.g. from a WordNetSnapshot
+    SynsetStore(ByteBuffer bytes, int used, int[] index) {
+        this.bytes = bytes;
+        this.used = used;
+        this.index = index;
+        this.size = index.length / 3;
+    }
+
+    // copies the synset src[synsetFrom, synsetTo) and its gloss src[glossFrom, glossTo) in as id
+    void put(int id, ByteBuffer src, int synsetFrom, int synsetTo, int glossFrom, int glossTo) {
+        int synsetLength = synsetTo - synsetFrom;
+        int glossLength = glossTo - glossFrom;
+        int at = reserve(id, synsetLength + glossLength);
+        bytes.put(at, src, synsetFrom, synsetLength);
+        bytes.put(at + synsetLength, src, glossFrom, glossLength);
+        index[3 * id + 1] = at + synsetLength;
+    }
+
+    void put(int id, String synset, String gloss) {
+        byte[] s = synset.getBytes(StandardCharsets.UTF_8);
+        byte[] g = gloss.getBytes(StandardCharsets.UTF_8);
+        int at = reserve(id, s.length + g.length);
+        bytes.put(at, s);
+        bytes.put(at + s.length, g);
+        index[3 * id + 1] = at + s.length;
+    }
+
+    // room for n bytes of id at the end of the buffer; returns where they start
+    private int reserve(int id, int n) {
+        if (3 * id >= index.length) {
+            int old = index.length;
+            index = Arrays.copyOf(index, Math.max(3 * (id + 1), 2 * old));
+            Arrays.fill(index, old, index.length, -1);
+        }
+        if (used + n > bytes.capacity()) {
+            ByteBuffer grown = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE,
+                    Math.max((long) used + n, 2L * bytes.capacity())));
+            grown.put(0, bytes, 0, used);
+            bytes = grown;
+        }
+        int at = used;
+        used += n;
+        index[3 * id] = at;
+        index[3 * id + 2] = used;
+        size = Math.max(size, id + 1);
+        return at;
+    }
+
+    // one past the largest id stored
+    int size() {
+        return size;
+    }
+
+    boolean contains(int id) {
+        return id >= 0 && id < size && index[3 * id] >= 0;
+    }
+
+    // the synset string of id, or null when id is unused
+    String synset(int id) {
+        return contains(id) ? decode(index[3 * id], index[3 * id + 1]) : null;
+    }
+
+    // the gloss of id, or null when id is unused
+    String gloss(int id) {
+        return contains(id) ? decode(index[3 * id + 1], index[3 * id + 2]) : null;
+    }
+
+    /**
+     * Hands the noun id in nouns of every space separated noun of the synset of id
+     * to visitor, in order, until it returns false; -1 for a noun not in nouns.
+     * The nouns are looked up where they lie, so no String is made for them.
+     * Returns false when the visitor stopped early.
+     */
+    boolean forEachNoun(int id, NounTable nouns, IntPredicate visitor) {
+        if (!contains(id)) {
+            return true;
+        }
+        int end = index[3 * id + 1];
+        int start = index[3 * id];
+        while (start < end) {
+            int to = start;
+            while (to < end && bytes.get(to) != ' ') {
+                to++;
+            }
+            if (to > start && !visitor.test(nouns.indexOf(bytes, start, to))) {
+                return false;
+            }
+            start = to + 1;
+        }
+        return true;
+    }
+
+    private String decode(int from, int to) {
+        byte[] b = new byte[to - from];
+        bytes.get(from, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    // the stored bytes and the index trimmed to size, for serialisation
+    ByteBuffer bytes() {
+        return bytes.slice(0, used);
+    }
+
+    int[] index() {
+        return Arrays.copyOf(index, 3 * size);
+    }
+}
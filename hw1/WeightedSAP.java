@@ -0,0 +1,313 @@
+import edu.princeton.cs.algs4.DirectedEdge;
+import edu.princeton.cs.algs4.EdgeWeightedDigraph;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdIn;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.Arrays;
+
+
+/**
+ * Shortest ancestral path over non-negative edge weights, e.g. an information
+ * content score per hypernym link. The contract is the one of SAP with hop counts
+ * replaced by path weights: length(v, w) is the least dist(v, x) + dist(w, x) over
+ * the common ancestors x, and ancestor(v, w) is such an x; both are -1 when there
+ * is no common ancestor.
+ *
+ * The weights are kept next to the targets of a compressed sparse row graph. A
+ * query runs a Dijkstra search up the graph from each side, always settling the
+ * side whose nearest unsettled vertex is closer, on indexed binary heaps of
+ * primitive keys. It stops once neither heap can yield an ancestor better than
+ * the best meeting point found so far. Queries are thread-safe, like those of SAP.
+ */
+public class WeightedSAP {
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;        // weights[k] is the weight of the edge to targets[k]
+    private final int V;
+    private final WorkspacePool<Processor> pool = new WorkspacePool<>(Processor::new);
+
+    // the weight of the edge v->w
+    public interface EdgeWeight {
+        double weight(int v, int w);
+    }
+
+    public WeightedSAP(EdgeWeightedDigraph G) {
+        if (null == G) {
+            throw new IllegalArgumentException("Null input to constructor");
+        }
+        V = G.V();
+        offsets = new int[V + 1];
+        targets = new int[G.E()];
+        weights = new double[G.E()];
+        int e = 0;
+        for (int v = 0; v < V; v++) {
+            offsets[v] = e;
+            for (DirectedEdge edge : G.adj(v)) {
+                targets[e] = edge.to();
+                weights[e] = edge.weight();
+                e++;
+            }
+        }
+        offsets[V] = e;
+        validateWeights();
+    }
+
+    // the edges of G, each weighted by weight; G is shared rather than copied
+    public WeightedSAP(CompactDigraph G, EdgeWeight weight) {
+        if (null == G || null == weight) {
+            throw new IllegalArgumentException("Null input to constructor");
+        }
+        V = G.V();
+        offsets = G.offsets;
+        targets = G.targets;
+        weights = new double[G.E()];
+        for (int v = 0; v < V; v++) {
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                weights[k] = weight.weight(v, targets[k]);
+            }
+        }
+        validateWeights();
+    }
+
+    private void validateWeights() {
+        for (double weight : weights) {
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Edge weights must be finite and non-negative");
+            }
+        }
+    }
+
+    private boolean validIndex(int idx) {
+        return idx >= 0 && idx < V;
+    }
+
+    private int[] toArray(Iterable<Integer> vertices) {
+        if (null == vertices) {
+            throw new IllegalArgumentException("Null vertex set");
+        }
+        int n = 0;
+        for (Integer v : vertices) {
+            if (null == v || !validIndex(v)) {
+                throw new IllegalArgumentException("Invalid index in vertex set");
+            }
+            n++;
+        }
+        int[] a = new int[n];
+        int i = 0;
+        for (int v : vertices) {
+            a[i++] = v;
+        }
+        return a;
+    }
+
+    // weight of the lightest ancestral path between v and w; -1 if no such path
+    public double length(int v, int w) {
+        if (!validIndex(v) || !validIndex(w)) {
+            throw new IllegalArgumentException("Invalid index passed to length");
+        }
+        return length(new int[] {v}, new int[] {w});
+    }
+
+    // a common ancestor of v and w on a lightest ancestral path; -1 if no such path
+    public int ancestor(int v, int w) {
+        if (!validIndex(v) || !validIndex(w)) {
+            throw new IllegalArgumentException("Invalid index passed to ancestor");
+        }
+        return ancestor(new int[] {v}, new int[] {w});
+    }
+
+    // weight of the lightest ancestral path between any vertex in v and any vertex in w; -1 if no such path
+    public double length(Iterable<Integer> v, Iterable<Integer> w) {
+        return length(toArray(v), toArray(w));
+    }
+
+    // a common ancestor on a lightest ancestral path between the sets; -1 if no such path
+    public int ancestor(Iterable<Integer> v, Iterable<Integer> w) {
+        return ancestor(toArray(v), toArray(w));
+    }
+
+    private double length(int[] v, int[] w) {
+        Processor p = pool.acquire();
+        p.run(v, w);
+        double length = p.distance;
+        pool.release(p);
+        return length;
+    }
+
+    private int ancestor(int[] v, int[] w) {
+        Processor p = pool.acquire();
+        p.run(v, w);
+        int ancestor = p.ancestor;
+        pool.release(p);
+        return ancestor;
+    }
+
+    // do unit testing of this class: an EdgeWeightedDigraph file, then vertex pairs on standard input
+    public static void main(String[] args) {
+        In in = new In(args[0]);
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(in);
+        WeightedSAP sap = new WeightedSAP(G);
+        while (!StdIn.isEmpty()) {
+            int v = StdIn.readInt();
+            int w = StdIn.readInt();
+            double length = sap.length(v, w);
+            int ancestor  = sap.ancestor(v, w);
+            StdOut.printf("length = %.5f, ancestor = %d\n", length, ancestor);
+        }
+    }
+
+    /**
+     * One Dijkstra search per side. A vertex is discovered on a side when its mark
+     * equals the current epoch; it is then in that side's heap while qp >= 0 and
+     * settled once qp is -1, so the arrays never need clearing between queries.
+     */
+    private final class Processor {
+        private static final double INFINITY = Double.POSITIVE_INFINITY;
+
+        double distance;
+        int ancestor;
+
+        private final Side a = new Side();
+        private final Side b = new Side();
+        private int epoch;
+
+        void run(int[] v, int[] w) {
+            begin();
+            for (int x : v) {
+                a.relax(x, 0);
+            }
+            for (int x : w) {
+                b.relax(x, 0);
+                if (a.reached(x)) {
+                    meet(x);
+                }
+            }
+
+            while (true) {
+                double topA = a.top();
+                double topB = b.top();
+                // every ancestor not yet met is unsettled on some side, so it costs at least that side's top
+                if (distance <= Math.min(topA, topB)) {
+                    break;
+                }
+                if (topA <= topB) {
+                    expand(a, b);
+                } else {
+                    expand(b, a);
+                }
+            }
+
+            if (INFINITY == distance) {
+                distance = -1;
+            }
+        }
+
+        // settle the nearest vertex of side s and relax its edges, checking meets against side o
+        private void expand(Side s, Side o) {
+            int x = s.pop();
+            double dx = s.dist[x];
+            for (int k = offsets[x]; k < offsets[x + 1]; k++) {
+                int y = targets[k];
+                if (s.relax(y, dx + weights[k]) && o.reached(y)) {
+                    meet(y);
+                }
+            }
+        }
+
+        // x is discovered on both sides; its tentative sum bounds the answer from above
+        private void meet(int x) {
+            double total = a.dist[x] + b.dist[x];
+            if (total < distance) {
+                distance = total;
+                ancestor = x;
+            }
+        }
+
+        private void begin() {
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(a.mark, 0);
+                Arrays.fill(b.mark, 0);
+                epoch = 0;
+            }
+            epoch++;
+            a.n = 0;
+            b.n = 0;
+            distance = INFINITY;
+            ancestor = -1;
+        }
+
+        // tentative distances and an indexed binary min-heap on them, 1-based
+        private final class Side {
+            final double[] dist = new double[V];
+            final int[] mark = new int[V];
+            final int[] qp = new int[V];          // heap position of a discovered vertex, -1 once settled
+            final int[] pq = new int[V + 1];
+            int n;
+
+            boolean reached(int x) {
+                return mark[x] == epoch;
+            }
+
+            // distance of the nearest unsettled vertex
+            double top() {
+                return n == 0 ? INFINITY : dist[pq[1]];
+            }
+
+            // lowers the tentative distance of x to d; false when that is no improvement
+            boolean relax(int x, double d) {
+                if (mark[x] != epoch) {
+                    mark[x] = epoch;
+                    dist[x] = d;
+                    pq[++n] = x;
+                    qp[x] = n;
+                    swim(n);
+                    return true;
+                }
+                if (qp[x] < 0 || d >= dist[x]) {
+                    return false;
+                }
+                dist[x] = d;
+                swim(qp[x]);
+                return true;
+            }
+
+            int pop() {
+                int x = pq[1];
+                swap(1, n--);
+                sink(1);
+                qp[x] = -1;
+                return x;
+            }
+
+            private void swim(int k) {
+                while (k > 1 && dist[pq[k / 2]] > dist[pq[k]]) {
+                    swap(k, k / 2);
+                    k /= 2;
+                }
+            }
+
+            private void sink(int k) {
+                while (2 * k <= n) {
+                    int j = 2 * k;
+                    if (j < n && dist[pq[j + 1]] < dist[pq[j]]) {
+                        j++;
+                    }
+                    if (dist[pq[k]] <= dist[pq[j]]) {
+                        break;
+                    }
+                    swap(k, j);
+                    k = j;
+                }
+            }
+
+            private void swap(int i, int j) {
+                int t = pq[i];
+                pq[i] = pq[j];
+                pq[j] = t;
+                qp[pq[i]] = i;
+                qp[pq[j]] = j;
+            }
+        }
+    }
+}
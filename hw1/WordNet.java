@@ -1,123 +1,111 @@
-import edu.princeton.cs.algs4.Digraph;
-import edu.princeton.cs.algs4.DirectedCycle;
-import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
 public class WordNet {
+    // no cache: it is one lock every query would pass through; callers that repeat pairs opt in
+    private static final int DEFAULT_CACHE_SIZE = 0;
+    private static final boolean PARALLEL_LOAD = Runtime.getRuntime().availableProcessors() > 1;
+
     private final SAP sap;
 
-    private final Map<Integer, String> idToSynset;
-    private final Map<String, Set<Integer>> nounToIds;
+    private final SynsetStore synsetStore; // synset strings and glosses by synset id, off heap
+    private final NounTable nounToIds;
 
     /**
      * Constructor takes the name of the two input files.
      */
     public WordNet(String synsets, String hypernyms) {  
+        this(synsets, hypernyms, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * As above, caching up to cacheSize noun pair results (0, the default, disables
+     * caching). The cache pays off when distance() and sap() are asked about the
+     * same pairs again, but it is shared and locked, so it serializes queries from
+     * many threads.
+     */
+    public WordNet(String synsets, String hypernyms, int cacheSize) {
+        this(synsets, hypernyms, cacheSize, false);
+    }
+
+    /**
+     * As above; when indexed, an AncestorIndex is built once here so that
+     * distance() and sap() are answered without searching the graph.
+     */
+    public WordNet(String synsets, String hypernyms, int cacheSize, boolean indexed) {
         // java.lang.IllegalArgumentException
         if (null == synsets || null == hypernyms) {
             throw new IllegalArgumentException("Null input to constructor");
         }
 
-        // read the input files
-        idToSynset = new HashMap<>();
-        nounToIds = new HashMap<>();
-        initIdToSynset(synsets);
+        // read the input files; the hypernyms are parsed on another core when there is one
+        CompletableFuture<WordNetParser.Hypernyms> edges = PARALLEL_LOAD
+            ? CompletableFuture.supplyAsync(() -> WordNetParser.parseHypernyms(hypernyms))
+            : CompletableFuture.completedFuture(WordNetParser.parseHypernyms(hypernyms));
+        WordNetParser.Synsets parsed = WordNetParser.parseSynsets(synsets);
+        synsetStore = parsed.store;
+        nounToIds = parsed.nouns;
 
-        Digraph graph = initHypernyms(hypernyms);
+        WordNetParser.Hypernyms hypernymEdges = join(edges);
+        int V = synsetStore.size();
+        for (int i = 0; i < hypernymEdges.size; i++) {
+            if (hypernymEdges.from[i] >= V || hypernymEdges.to[i] >= V) {
+                throw new IllegalArgumentException("Hypernym refers to an unknown synset");
+            }
+        }
+        CompactDigraph compact = CompactDigraph.fromEdges(V, hypernymEdges.from, hypernymEdges.to,
+                                                          hypernymEdges.size);
 
         // ensure argument corresponds to a rooted DAG
-        DirectedCycle cycle = new DirectedCycle(graph);
-        if (cycle.hasCycle() || !rootedDAG(graph)) {
+        if (!compact.isRootedDAG()) {
             throw new IllegalArgumentException("Input does not correspond to a rooted DAG");
         }
-        sap = new SAP(graph);
+        sap = new SAP(compact, cacheSize, indexed);
     }
 
-    private boolean rootedDAG(Digraph graph) {
-        // look through the graph and return true if only one node has a next
-        int numRoots = 0;
-
-        for (int i = 0; i < graph.V(); i++) {
-
-            // if no adj()...
-            if (!graph.adj(i).iterator().hasNext()) {
-                numRoots++;
-                // if we found more than one stop
-                if (numRoots > 1) {
-                    return false;
-                }
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw e;
         }
-        return numRoots == 1;
     }
 
+    // assembles a WordNet from parts that were validated when they were first built
+    WordNet(SynsetStore synsetStore, NounTable nounToIds, SAP sap) {
+        this.synsetStore = synsetStore;
+        this.nounToIds = nounToIds;
+        this.sap = sap;
+    }
 
     /**
-     * The file synsets.txt lists all the (noun) synsets in WordNet. 
-     * The first field is the synset id (an integer), the second field is 
-     * the synonym set (or synset), and the third field is its dictionary definition (or gloss).
-     * For example, the line
-     * 36,AND_circuit AND_gate,a circuit in a computer that fires only when all of its inputs fire
+     * Loads a WordNet from a snapshot written by WordNetSnapshot.write().
+     * The file is memory-mapped and neither parsed nor validated again.
      */
-    private void initIdToSynset(String filename) {
-        In file = new In(filename);
-        while (file.hasNextLine()) {
-            String[] line = file.readLine().split(",");
-
-            Integer id = Integer.valueOf(line[0]);
-            String n = line[1];
-
-            idToSynset.put(id, n);
-
-            String[] nouns = n.split(" ");
-            for (String noun : nouns) {
-                Set<Integer> ids = nounToIds.get(noun);
-                if (null == ids) {
-                    ids = new HashSet<>();
-                }
-                ids.add(id);
-                nounToIds.put(noun, ids);
-            }
-        }
+    public static WordNet fromSnapshot(String filename) {
+        return fromSnapshot(filename, DEFAULT_CACHE_SIZE);
     }
 
-    /**
-     * The file hypernyms.txt contains the hypernym relationships: 
-     * The first field is a synset id; subsequent fields are the id 
-     * numbers of the synset's hypernyms. 
-     * For example:
-     * 164,21012,56099
-     * Digraph:
-     * see https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/Digraph.java.html
-    */
-    private Digraph initHypernyms(String filename) {
-        Digraph graph = new Digraph(idToSynset.size());
-        // first value is the synset id
-        // subsequent ids are the synset's hypernyms
-        In file = new In(filename);
-        while (file.hasNextLine()) {
-            String[] line = file.readLine().split(",");
-            Integer synsetId = Integer.valueOf(line[0]);
-            for (int i = 1; i < line.length; i++) {
-                Integer id = Integer.valueOf(line[i]);
-                graph.addEdge(synsetId, id);
-            }
+    public static WordNet fromSnapshot(String filename, int cacheSize) {
+        if (null == filename) {
+            throw new IllegalArgumentException("Null input to fromSnapshot");
         }
-        return graph;
+        return WordNetSnapshot.read(filename, cacheSize);
     }
-    
 
-    
     // returns all WordNet nouns
     public Iterable<String> nouns() {
-        return nounToIds.keySet();
+        return nounToIds.nouns();
     }
        
     public boolean isNoun(String word) {                 // is the word a WordNet noun?
@@ -128,7 +116,7 @@ public class WordNet {
             return false;
         }
 
-        return nounToIds.containsKey(word);
+        return nounToIds.indexOf(word) >= 0;
     }
     
     // distance between nounA and nounB (defined below)
@@ -138,14 +126,84 @@ public class WordNet {
         }
 
         // ensure nouns are WordNet nouns
-        if (!isNoun(nounA) || !isNoun(nounB)) {
+        int a = nounToIds.indexOf(nounA);
+        int b = nounToIds.indexOf(nounB);
+        if (a < 0 || b < 0) {
             throw new IllegalArgumentException("distance arguments are not both WordNet nouns");
         }
 
-        Set<Integer> idsA = nounToIds.get(nounA);
-        Set<Integer> idsB = nounToIds.get(nounB);
+        return sap.length(nounToIds.synsets(a), nounToIds.synsets(b));
+    }
+
+    // distances[i] is distance(pairs[i][0], pairs[i][1]), computed in parallel
+    public int[] distances(List<String[]> pairs) {
+        if (null == pairs) {
+            throw new IllegalArgumentException("distances was passed null");
+        }
+        int[][] idsA = new int[pairs.size()][];
+        int[][] idsB = new int[pairs.size()][];
+        int i = 0;
+        for (String[] pair : pairs) {
+            if (null == pair || pair.length != 2 || null == pair[0] || null == pair[1]) {
+                throw new IllegalArgumentException("distances expects pairs of nouns");
+            }
+            int a = nounToIds.indexOf(pair[0]);
+            int b = nounToIds.indexOf(pair[1]);
+            if (a < 0 || b < 0) {
+                throw new IllegalArgumentException("distances arguments are not all WordNet nouns");
+            }
+            idsA[i] = nounToIds.synsets(a);
+            idsB[i] = nounToIds.synsets(b);
+            i++;
+        }
+        return sap.lengths(idsA, idsB);
+    }
 
-        return sap.length(idsA, idsB);
+    // ancestor distance vector of the synsets of noun, see SAP.ancestorDistances()
+    long[] ancestorDistances(String noun) {
+        int id = null == noun ? -1 : nounToIds.indexOf(noun);
+        if (id < 0) {
+            throw new IllegalArgumentException("ancestorDistances argument is not a WordNet noun");
+        }
+        return sap.ancestorDistances(nounToIds.synsets(id));
+    }
+
+    /**
+     * The k nouns closest to noun by distance(), nearest first, not counting noun
+     * itself; fewer when fewer nouns share an ancestor with it. Ties are broken
+     * arbitrarily. Synsets are visited outwards from the synsets of noun and the
+     * search stops as soon as k nouns are known, so the cost depends on the size
+     * of that neighbourhood rather than on the number of nouns.
+     */
+    public List<String> nearest(String noun, int k) {
+        if (null == noun) {
+            throw new IllegalArgumentException("nearest was passed null");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("nearest was passed a negative k");
+        }
+        int id = nounToIds.indexOf(noun);
+        if (id < 0) {
+            throw new IllegalArgumentException("nearest argument is not a WordNet noun");
+        }
+
+        List<String> nearest = new ArrayList<>(Math.min(k, nounToIds.size()));
+        if (k == 0) {
+            return nearest;
+        }
+        // nouns are told apart by id, so only the ones returned are ever Strings, and those are interned
+        BitSet seen = new BitSet(nounToIds.size());
+        seen.set(id);
+        sap.nearest(nounToIds.synsets(id), (synset, distance) ->
+            synsetStore.forEachNoun(synset, nounToIds, other -> {
+                if (other < 0 || seen.get(other)) {
+                    return true;
+                }
+                seen.set(other);
+                nearest.add(nounToIds.noun(other));
+                return nearest.size() < k;
+            }));
+        return nearest;
     }
 
     // a synset (second field of synsets.txt) that is the common ancestor of nounA and nounB
@@ -156,15 +214,118 @@ public class WordNet {
         }
         
         // ensure nouns are WordNet nouns
-        if (!isNoun(nounA) || !isNoun(nounB)) {
+        int a = nounToIds.indexOf(nounA);
+        int b = nounToIds.indexOf(nounB);
+        if (a < 0 || b < 0) {
             throw new IllegalArgumentException("sap arguments are not both WordNet nouns");
         }
 
-        Set<Integer> idsA = nounToIds.get(nounA);
-        Set<Integer> idsB = nounToIds.get(nounB);
-        
-        int ancestor = sap.ancestor(idsA, idsB);
-        return idToSynset.get(ancestor);
+        int ancestor = sap.ancestor(nounToIds.synsets(a), nounToIds.synsets(b));
+        return synsetStore.synset(ancestor);
+    }
+
+    // the dictionary definition of a synset, decoded from the off-heap store on each call
+    public String gloss(int synsetId) {
+        if (!synsetStore.contains(synsetId)) {
+            throw new IllegalArgumentException("Invalid synset id passed to gloss");
+        }
+        return synsetStore.gloss(synsetId);
+    }
+
+    SynsetStore synsetStore() {
+        return synsetStore;
+    }
+
+    NounTable nounTable() {
+        return nounToIds;
+    }
+
+    SAP sap() {
+        return sap;
+    }
+
+    /**
+     * Adds a synset whose hypernyms are existing synsets and returns its id.
+     * At least one hypernym is required, otherwise the synset would be a
+     * second root. A new synset has no hyponyms, so it cannot close a cycle.
+     * Updates must not run concurrently with queries.
+     */
+    public int addSynset(String synset, int... hypernyms) {
+        return addSynset(synset, "", hypernyms);
+    }
+
+    // as above, with a gloss
+    public int addSynset(String synset, String gloss, int... hypernyms) {
+        if (null == synset || null == gloss || null == hypernyms) {
+            throw new IllegalArgumentException("addSynset was passed null");
+        }
+        if (synset.isEmpty() || synset.indexOf(',') >= 0) {
+            throw new IllegalArgumentException("Invalid synset: " + synset);
+        }
+        if (hypernyms.length == 0) {
+            throw new IllegalArgumentException("A new synset needs at least one hypernym");
+        }
+        for (int h : hypernyms) {
+            if (h < 0 || h >= synsetStore.size()) {
+                throw new IllegalArgumentException("Invalid hypernym id " + h);
+            }
+        }
+
+        int id = sap.addVertex();
+        for (int h : hypernyms) {
+            sap.addEdge(id, h);
+        }
+        synsetStore.put(id, synset, gloss);
+        for (String noun : synset.split(" ")) {
+            if (!noun.isEmpty()) {
+                nounToIds.add(noun, id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Adds hypernymId as a hypernym of synsetId. The edge closes a cycle exactly
+     * when synsetId is already an ancestor of hypernymId, so only the ancestors
+     * of hypernymId are searched. A root cannot gain a hypernym without closing
+     * a cycle, so the graph stays a rooted DAG.
+     * Updates must not run concurrently with queries.
+     */
+    public void addHypernym(int synsetId, int hypernymId) {
+        int synsetCount = synsetStore.size();
+        if (synsetId < 0 || synsetId >= synsetCount || hypernymId < 0 || hypernymId >= synsetCount) {
+            throw new IllegalArgumentException("Invalid synset id passed to addHypernym");
+        }
+        if (synsetId == hypernymId || sap.hasPath(hypernymId, synsetId)) {
+            throw new IllegalArgumentException("Hypernym " + hypernymId + " of " + synsetId
+                                               + " would create a cycle");
+        }
+        sap.addEdge(synsetId, hypernymId);
+    }
+
+    // folds added hypernyms into the compact graph and rebuilds a stale ancestor index
+    public void compact() {
+        sap.compact();
+    }
+
+    // hit/miss/eviction counters of the result cache, or null when caching is disabled
+    public SapCache cache() {
+        return sap.cache();
+    }
+
+    // size and build time of the ancestor index, or null when not indexed
+    public AncestorIndex index() {
+        return sap.index();
+    }
+
+    // answers distance() and sap() between nouns on single-hypernym chains in constant time, at some memory cost
+    public void buildChains() {
+        sap.buildChains();
+    }
+
+    // instruments the SAP queries behind distance() and sap(); null switches it off
+    public void setListener(SapListener listener) {
+        sap.setListener(listener);
     }
 
     
@@ -0,0 +1,243 @@
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * Byte-level parser for the synsets and hypernyms files. Each file is memory-mapped
+ * and scanned once; ids are decoded in place, synsets and glosses are copied as
+ * bytes into a SynsetStore, and the only objects created are the noun strings,
+ * instead of a line String, a String[] from split() and a boxed Integer per field.
+ */
+final class WordNetParser {
+    private WordNetParser() { }
+
+    static final class Synsets {
+        final SynsetStore store;
+        final NounTable nouns;
+
+        Synsets(SynsetStore store, NounTable nouns) {
+            this.store = store;
+            this.nouns = nouns;
+        }
+    }
+
+    // the hypernym edges from[i] -> to[i], 0 <= i < size
+    static final class Hypernyms {
+        final int[] from;
+        final int[] to;
+        final int size;
+
+        Hypernyms(int[] from, int[] to, int size) {
+            this.from = from;
+            this.to = to;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The file synsets.txt lists all the (noun) synsets in WordNet.
+     * The first field is the synset id (an integer), the second field is
+     * the synonym set (or synset), and the third field is its dictionary definition (or gloss).
+     * For example, the line
+     * 36,AND_circuit AND_gate,a circuit in a computer that fires only when all of its inputs fire
+     */
+    static Synsets parseSynsets(String filename) {
+        ByteBuffer in = map(filename);
+        int n = in.limit();
+        byte[] scratch = new byte[256];
+        SynsetStore store = new SynsetStore(1024, n);
+        NounTable.Builder nouns = new NounTable.Builder();
+
+        int line = 1;
+        int pos = 0;
+        while (pos < n) {
+            if (isLineEnd(in.get(pos))) {
+                if (in.get(pos) == '\n') {
+                    line++;
+                }
+                pos++;
+                continue;
+            }
+
+            // synset id
+            int id = 0;
+            int digits = 0;
+            byte b;
+            while (pos < n && (b = in.get(pos)) >= '0' && b <= '9') {
+                id = 10 * id + (b - '0');
+                digits++;
+                pos++;
+            }
+            if (digits == 0 || pos == n || in.get(pos) != ',') {
+                throw malformed(filename, line);
+            }
+            pos++;
+
+            // synonym set, copied once into the scratch buffer
+            int start = pos;
+            while (pos < n && in.get(pos) != ',' && !isLineEnd(in.get(pos))) {
+                pos++;
+            }
+            int length = pos - start;
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, 2 * scratch.length)];
+            }
+            for (int i = 0; i < length; i++) {
+                scratch[i] = in.get(start + i);
+            }
+
+            // the gloss is the rest of the line
+            int glossStart = pos;
+            if (pos < n && in.get(pos) == ',') {
+                glossStart = ++pos;
+                while (pos < n && !isLineEnd(in.get(pos))) {
+                    pos++;
+                }
+            }
+            store.put(id, in, start, start + length, glossStart, pos);
+
+            // nouns are the space separated tokens of the synonym set
+            int token = 0;
+            for (int i = 0; i <= length; i++) {
+                if (i == length || scratch[i] == ' ') {
+                    if (i > token) {
+                        nouns.add(new String(scratch, token, i - token, StandardCharsets.UTF_8), id);
+                    }
+                    token = i + 1;
+                }
+            }
+        }
+        return new Synsets(store, nouns.build());
+    }
+
+    /**
+     * The file hypernyms.txt contains the hypernym relationships:
+     * The first field is a synset id; subsequent fields are the id
+     * numbers of the synset's hypernyms.
+     * For example:
+     * 164,21012,56099
+     */
+    static Hypernyms parseHypernyms(String filename) {
+        ByteBuffer in = map(filename);
+        int n = in.limit();
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        int size = 0;
+
+        int line = 1;
+        int pos = 0;
+        while (pos < n) {
+            if (isLineEnd(in.get(pos))) {
+                if (in.get(pos) == '\n') {
+                    line++;
+                }
+                pos++;
+                continue;
+            }
+
+            // first value is the synset id, subsequent ids are the synset's hypernyms
+            int synsetId = -1;
+            while (true) {
+                int id = 0;
+                int digits = 0;
+                byte b;
+                while (pos < n && (b = in.get(pos)) >= '0' && b <= '9') {
+                    id = 10 * id + (b - '0');
+                    digits++;
+                    pos++;
+                }
+                if (digits == 0) {
+                    throw malformed(filename, line);
+                }
+                if (synsetId < 0) {
+                    synsetId = id;
+                } else {
+                    if (size == from.length) {
+                        from = Arrays.copyOf(from, 2 * size);
+                        to = Arrays.copyOf(to, 2 * size);
+                    }
+                    from[size] = synsetId;
+                    to[size] = id;
+                    size++;
+                }
+                if (pos == n || isLineEnd(in.get(pos))) {
+                    break;
+                }
+                if (in.get(pos) != ',') {
+                    throw malformed(filename, line);
+                }
+                pos++;
+            }
+        }
+        return new Hypernyms(from, to, size);
+    }
+
+    private static boolean isLineEnd(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private static IllegalArgumentException malformed(String filename, int line) {
+        return new IllegalArgumentException(filename + ": malformed line " + line);
+    }
+
+    private static ByteBuffer map(String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + filename, e);
+        }
+    }
+
+    // compares load time and allocation of this parser with In.readLine().split(): synsets hypernyms
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int round = 0; round < 5; round++) {
+            long bytes = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            parseSynsets(args[0]);
+            parseHypernyms(args[1]);
+            long parsed = System.nanoTime();
+            long parsedBytes = threads.getThreadAllocatedBytes(thread);
+
+            int lines = splitLines(args[0], true) + splitLines(args[1], false);
+            long split = System.nanoTime();
+            long splitBytes = threads.getThreadAllocatedBytes(thread);
+
+            StdOut.printf("byte parser %4d ms %6.1f MB, split %4d ms %6.1f MB (%d lines)\n",
+                          (parsed - start) / 1000000, (parsedBytes - bytes) / 1e6,
+                          (split - parsed) / 1000000, (splitBytes - parsedBytes) / 1e6, lines);
+        }
+    }
+
+    // the previous parsing path, tokenising only, for comparison
+    private static int splitLines(String filename, boolean synsets) {
+        In file = new In(filename);
+        int lines = 0;
+        while (file.hasNextLine()) {
+            String[] line = file.readLine().split(",");
+            Integer.valueOf(line[0]);
+            if (synsets) {
+                line[1].split(" ");
+            } else {
+                for (int i = 1; i < line.length; i++) {
+                    Integer.valueOf(line[i]);
+                }
+            }
+            lines++;
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,336 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Binary snapshot of a validated WordNet: the compact hypernym graph, the synsets
+ * with their glosses, the noun dictionary and, when present, the ancestor index.
+ * Every section is a run of little-endian ints (strings are a table of byte
+ * offsets followed by UTF-8 bytes), so loading is a handful of bulk copies out of
+ * a memory-mapped file with no text parsing and no DAG validation. The synset
+ * bytes are not copied at all: the loaded SynsetStore reads them from the mapping.
+ * Counts and offsets are checked against the rest of the file before they size
+ * anything, so a damaged file is rejected with an IllegalArgumentException.
+ *
+ * Layout:
+ *   magic, version
+ *   graph:   V, E, offsets[V + 1], targets[E]
+ *   synsets: byteCount, bytes padded to a multiple of 4, indexLength, index[] (see SynsetStore)
+ *   nouns:   strings, synsetOffsets[n + 1], synsetIds[], slotCount, slots[]
+ *   index:   0, or 1 followed by start[V], end[V], size, ancestors[size], dists[size]
+ *   strings: n, byteOffsets[n + 1], bytes padded to a multiple of 4
+ */
+public final class WordNetSnapshot {
+    private static final int MAGIC = 0x574e5331;   // "WNS1"
+    private static final int VERSION = 2;   // 2 added glosses
+
+    private WordNetSnapshot() { }
+
+    /**
+     * Writes the state of wordnet to the named file, replacing it. Pending
+     * updates are compacted first so the snapshot holds a fresh index.
+     *
+     * The snapshot is written to a temporary file next to the target and then
+     * moved over it, because a WordNet loaded from the target still reads its
+     * synsets from that file's mapping; the old file lives on until it is unmapped.
+     */
+    public static void write(WordNet wordnet, String filename) {
+        if (null == wordnet || null == filename) {
+            throw new IllegalArgumentException("Null input to write");
+        }
+        wordnet.compact();
+        CompactDigraph graph = wordnet.sap().graph();
+        AncestorIndex index = wordnet.sap().index();
+        NounTable nouns = wordnet.nounTable();
+
+        ByteBuffer synsetBytes = wordnet.synsetStore().bytes();
+        int[] synsetIndex = wordnet.synsetStore().index();
+        String[] names = new String[nouns.size()];
+        int[] synsetOffsets = new int[nouns.size() + 1];
+        for (int id = 0; id < nouns.size(); id++) {
+            names[id] = nouns.noun(id);
+            synsetOffsets[id + 1] = synsetOffsets[id] + nouns.synsets(id).length;
+        }
+        byte[][] nounBytes = encode(names, names.length);
+
+        long size = 4L * 2
+                  + 4L * (2 + graph.offsets.length + graph.targets.length)
+                  + 4L * (2 + synsetIndex.length) + padded(synsetBytes.remaining())
+                  + stringsSize(nounBytes) + 4L * (synsetOffsets.length + synsetOffsets[names.length])
+                  + 4L * (1 + nouns.slots().length)
+                  + 4L * (1 + (null == index ? 0 : 2 + 2L * index.V() + 2L * index.size()));
+
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+                buffer.putInt(MAGIC);
+                buffer.putInt(VERSION);
+
+                buffer.putInt(graph.V());
+                buffer.putInt(graph.E());
+                putInts(buffer, graph.offsets);
+                putInts(buffer, graph.targets);
+
+                buffer.putInt(synsetBytes.remaining());
+                buffer.put(synsetBytes);
+                buffer.position((int) padded(buffer.position()));
+                buffer.putInt(synsetIndex.length);
+                putInts(buffer, synsetIndex);
+
+                putStrings(buffer, nounBytes);
+                putInts(buffer, synsetOffsets);
+                for (int id = 0; id < names.length; id++) {
+                    putInts(buffer, nouns.synsets(id));
+                }
+                buffer.putInt(nouns.slots().length);
+                putInts(buffer, nouns.slots());
+
+                if (null == index) {
+                    buffer.putInt(0);
+                } else {
+                    buffer.putInt(1);
+                    buffer.putInt(index.V());
+                    putInts(buffer, index.start);
+                    putInts(buffer, index.end);
+                    buffer.putInt(index.size());
+                    putInts(buffer, index.ancestors);
+                    putInts(buffer, index.dists);
+                }
+                buffer.force();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot " + filename, e);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    // drops the temporary file of a write that failed before its move
+    private static void deleteQuietly(Path temp) {
+        if (null == temp) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            // the write already failed, and that is the error worth reporting
+        }
+    }
+
+    static WordNet read(String filename, int cacheSize) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException(filename + " is not a WordNet snapshot");
+            }
+            if (buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException(filename + " was written by another version");
+            }
+
+            int V = buffer.getInt();
+            int E = buffer.getInt();
+            int[] offsets = getInts(buffer, V + 1);
+            int[] targets = getInts(buffer, E);
+            checkOffsets(offsets, E);
+            checkRange(targets, 0, V);
+            CompactDigraph graph = new CompactDigraph(offsets, targets);
+
+            // the mapping outlives the channel, so the store can keep reading from it
+            int synsetByteCount = buffer.getInt();
+            checkRemaining(buffer, synsetByteCount, 1);
+            ByteBuffer synsetBytes = buffer.slice(buffer.position(), synsetByteCount);
+            buffer.position((int) padded(buffer.position() + synsetByteCount));
+            int[] synsetIndex = getInts(buffer, buffer.getInt());
+            checkSynsetIndex(synsetIndex, synsetByteCount);
+            SynsetStore store = new SynsetStore(synsetBytes, synsetByteCount, synsetIndex);
+
+            String[] names = getStrings(buffer);
+            int[] synsetOffsets = getInts(buffer, names.length + 1);
+            checkOffsets(synsetOffsets, synsetOffsets[names.length]);
+            int[][] synsets = new int[names.length][];
+            for (int id = 0; id < names.length; id++) {
+                synsets[id] = getInts(buffer, synsetOffsets[id + 1] - synsetOffsets[id]);
+                checkRange(synsets[id], 0, V);
+            }
+            int[] slots = getInts(buffer, buffer.getInt());
+            // an open-addressed table of noun id + 1, a power of two at most half full
+            if (Integer.bitCount(slots.length) != 1 || 2L * names.length > slots.length) {
+                throw new BufferUnderflowException();
+            }
+            checkRange(slots, 0, names.length + 1);
+            NounTable nouns = new NounTable(names, synsets, slots);
+
+            AncestorIndex index = null;
+            if (buffer.getInt() == 1) {
+                int n = buffer.getInt();
+                if (n != V) {
+                    throw new BufferUnderflowException();
+                }
+                int[] start = getInts(buffer, n);
+                int[] end = getInts(buffer, n);
+                int entries = buffer.getInt();
+                int[] ancestors = getInts(buffer, entries);
+                int[] dists = getInts(buffer, entries);
+                checkRange(start, 0, entries + 1);
+                checkRange(end, 0, entries + 1);
+                for (int v = 0; v < n; v++) {
+                    if (start[v] > end[v]) {
+                        throw new BufferUnderflowException();
+                    }
+                }
+                checkRange(ancestors, 0, V);
+                index = new AncestorIndex(start, end, ancestors, dists);
+            }
+
+            return new WordNet(store, nouns, new SAP(graph, cacheSize, index));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException(filename + " is a truncated or corrupt snapshot", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snapshot " + filename, e);
+        }
+    }
+
+    private static byte[][] encode(String[] strings, int n) {
+        byte[][] bytes = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            bytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    private static long stringsSize(byte[][] strings) {
+        long bytes = 0;
+        for (byte[] s : strings) {
+            bytes += s.length;
+        }
+        return 4L * (2 + strings.length) + padded(bytes);
+    }
+
+    private static long padded(long bytes) {
+        return (bytes + 3) & ~3L;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] a) {
+        buffer.asIntBuffer().put(a);
+        buffer.position(buffer.position() + 4 * a.length);
+    }
+
+    // the file must still hold n items of width bytes; checked before anything that size is allocated
+    private static void checkRemaining(ByteBuffer buffer, long n, int width) {
+        if (n < 0 || n * width > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+    }
+
+    // every used id must have start <= gloss start <= end <= byteCount
+    private static void checkSynsetIndex(int[] index, int byteCount) {
+        if (index.length % 3 != 0) {
+            throw new BufferUnderflowException();
+        }
+        for (int i = 0; i < index.length; i += 3) {
+            if (index[i] != -1 && (index[i] < 0 || index[i] > index[i + 1]
+                    || index[i + 1] > index[i + 2] || index[i + 2] > byteCount)) {
+                throw new BufferUnderflowException();
+            }
+        }
+    }
+
+    // offsets must run from 0 to total without going down
+    private static void checkOffsets(int[] offsets, int total) {
+        if (offsets[0] != 0 || offsets[offsets.length - 1] != total) {
+            throw new BufferUnderflowException();
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) {
+                throw new BufferUnderflowException();
+            }
+        }
+    }
+
+    // every value must lie in [from, to)
+    private static void checkRange(int[] a, int from, int to) {
+        for (int x : a) {
+            if (x < from || x >= to) {
+                throw new BufferUnderflowException();
+            }
+        }
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int n) {
+        checkRemaining(buffer, n, 4);
+        int[] a = new int[n];
+        buffer.asIntBuffer().get(a);
+        buffer.position(buffer.position() + 4 * n);
+        return a;
+    }
+
+    private static void putStrings(ByteBuffer buffer, byte[][] strings) {
+        buffer.putInt(strings.length);
+        int offset = 0;
+        buffer.putInt(offset);
+        for (byte[] s : strings) {
+            offset += s.length;
+            buffer.putInt(offset);
+        }
+        for (byte[] s : strings) {
+            buffer.put(s);
+        }
+        buffer.position((int) padded(buffer.position()));
+    }
+
+    private static String[] getStrings(ByteBuffer buffer) {
+        int n = buffer.getInt();
+        int[] offsets = getInts(buffer, n + 1);
+        checkOffsets(offsets, offsets[n]);
+        checkRemaining(buffer, offsets[n], 1);
+        byte[] bytes = new byte[offsets[n]];
+        buffer.get(bytes);
+        buffer.position((int) padded(buffer.position()));
+
+        String[] strings = new String[n];
+        for (int i = 0; i < n; i++) {
+            strings[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    // writes a snapshot of the synsets and hypernyms files: synsets hypernyms snapshot [indexed]
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Need the synsets, hypernyms and snapshot file names");
+        }
+        boolean indexed = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        long start = System.nanoTime();
+        WordNet wordnet = new WordNet(args[0], args[1], 0, indexed);
+        long built = System.nanoTime();
+        write(wordnet, args[2]);
+        long written = System.nanoTime();
+        WordNet.fromSnapshot(args[2]);
+        long loaded = System.nanoTime();
+
+        StdOut.printf("built in %d ms, written in %d ms, loaded in %d ms\n",
+                      (built - start) / 1000000, (written - built) / 1000000, (loaded - written) / 1000000);
+    }
+}
@@ -0,0 +1,55 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+
+/**
+ * A small striped pool of per-query search state, shared by SAP and WeightedSAP.
+ * Searches take a workspace, use it on their own and hand it back, so the graph
+ * stays read-only and threads reuse their distance arrays and queues instead of
+ * allocating them per query. A workspace is made when the nearby slots are empty
+ * and dropped when they are full, so the pool never blocks.
+ */
+final class WorkspacePool<T> {
+    private static final int PROBES = 4;   // pool slots tried by acquire() and release()
+
+    private final AtomicReferenceArray<T> idle;  // null slots are empty
+    private final Supplier<T> factory;
+
+    WorkspacePool(Supplier<T> factory) {
+        this.factory = factory;
+        this.idle = new AtomicReferenceArray<>(size());
+    }
+
+    // a power of two with room for a few searches per core
+    private static int size() {
+        return Integer.highestOneBit(4 * Runtime.getRuntime().availableProcessors() - 1) << 1;
+    }
+
+    /**
+     * Takes an idle workspace, or makes one when the pool is empty. The probe
+     * starts at a slot picked by thread id so threads rarely contend for a slot
+     * and a thread usually gets back the workspace it released last.
+     */
+    T acquire() {
+        int mask = idle.length() - 1;
+        int start = (int) Thread.currentThread().getId();
+        for (int i = 0; i < PROBES; i++) {
+            T t = idle.getAndSet((start + i) & mask, null);
+            if (null != t) {
+                return t;
+            }
+        }
+        return factory.get();
+    }
+
+    // returns t to the pool; dropped when the nearby slots are full
+    void release(T t) {
+        int mask = idle.length() - 1;
+        int start = (int) Thread.currentThread().getId();
+        for (int i = 0; i < PROBES; i++) {
+            if (idle.compareAndSet((start + i) & mask, null, t)) {
+                return;
+            }
+        }
+    }
+}
@@ -1,18 +1,44 @@
-import java.awt.Color;
-
 import edu.princeton.cs.algs4.Picture;
 import edu.princeton.cs.algs4.StdOut;
 
-
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+
+/**
+ * The picture is kept as a flat int[] of packed 0xRRGGBB pixels in row-major order,
+ * with the energies in a parallel double[]. Colour channels are unpacked with
+ * shifts and masks rather than through Color objects, and a Picture is only built
+ * when picture() asks for one.
+ *
+ * Seams are always found and removed down the rows of that layout. Horizontal
+ * seams are handled with the layout transposed, so the rows are the columns of
+ * the picture; the carver stays in whichever orientation the last seam needed and
+ * only transposes when the seam direction changes.
+ *
+ * The energies of a whole large picture are worked out in bands of rows on the
+ * common ForkJoinPool.
+ */
 public class SeamCarver {
     private static final double MAX_ENERGY = 1000; /// 195075.0;   // = 255^2 + 255^2 + 255^2
     private static final double EPSILON = 0.00000001; // https://stackoverflow.com/a/1088271
+    private static final int TILE = 32;             // side of the blocks transpose() copies
+    private static final int PARALLEL_PIXELS = 1 << 20; // smaller pictures get their energies serially
+    private static final int CANDIDATES = 4;        // end columns carve() tries per seam it wants
+
+    private int columns;        // of the layout: width() unless transposed
+    private int rows;
+    private boolean transposed;
+    private int[] rgb;          // rgb[row * columns + column] is a packed colour
+    private double[] energy;    // energy[row * columns + column] is its energy
+    private int[] parent;       // parent[row * columns + column] is the column above it on the cheapest seam to it
+    private int[] rgbSpare;     // transpose() targets, swapped with rgb and energy
+    private double[] energySpare;
+    private int[] taken;        // taken[row * columns + column] == stamp if a seam of this carve() pass is on or next to it
+    private int stamp;
 
-    private Picture picture;
-    private double[][] energy;
-    private int[][] parent;
 
-    
     public SeamCarver(final Picture picture)  {             // create a seam carver object based on the given picture
         // The data type may not mutate the Picture argument to the constructor.
         // java.lang.IllegalArgumentException if null argument
@@ -20,206 +46,399 @@ public class SeamCarver {
             throw new java.lang.IllegalArgumentException();
         }
 
-        // intiialize member variables
-        this.picture = new Picture(picture);  // copy picture to prevent client from changing picture later
-        this.energy = new double[picture.width()][picture.height()];
-        this.parent = new int[picture.width()][picture.height()];
+        // copy the pixels to prevent client from changing picture later
+        this.columns = picture.width();
+        this.rows = picture.height();
+        this.rgb = new int[columns * rows];
+        this.energy = new double[columns * rows];
+        this.parent = new int[columns * rows];
 
-        for (int y = 0; y < height(); y++) {
-            for (int x = 0; x < width(); x++) {
-                energy[x][y] = energy(x, y);
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                rgb[y * columns + x] = picture.getRGB(x, y) & 0xffffff;
             }
         }
+        computeEnergy();
     }
 
     public Picture picture() {                        // current picture
-        // Don't return a mutatable picture so pass it a copy
-        return new Picture(this.picture);
+        // Don't return a mutatable picture so build a new one
+        Picture p = new Picture(width(), height());
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                if (transposed) {
+                    p.setRGB(row, col, rgb[row * columns + col]);
+                } else {
+                    p.setRGB(col, row, rgb[row * columns + col]);
+                }
+            }
+        }
+        return p;
     }
-    
+
     public     int width() {                          // width of current picture
-        return picture.width();
+        return transposed ? rows : columns;
     }
-    
+
     public     int height() {                         // height of current picture
-        return picture.height();
+        return transposed ? columns : rows;
     }
-    
+
     public  double energy(int x, int y) {             // energy of pixel at column x and row y
-        if (x < 0 || x > width() - 1 || y < 0 || y > height() -1) {
+        if (x < 0 || x > width() - 1 || y < 0 || y > height() - 1) {
             throw new java.lang.IllegalArgumentException();
         }
-
-        if (x == 0 || x == width() - 1 || y == 0 || y == height() - 1) {
-            return MAX_ENERGY;
-        }
-        double xDiff = gradient(picture.get(x - 1, y), picture.get(x + 1, y));
-        double yDiff = gradient(picture.get(x, y - 1), picture.get(x, y + 1));
-        return java.lang.Math.sqrt(xDiff + yDiff);
+        return transposed ? energy[x * columns + y] : energy[y * columns + x];
     }
 
     public   int[] findHorizontalSeam() {             // sequence of indices for horizontal seam
-        flipPicture();
-        int[] seam = findVerticalSeam();
-        flipPicture();
-        return seam;
+        orient(true);
+        return findSeam();
     }
 
     public   int[] findVerticalSeam() {               // sequence of indices for vertical seam
-        int[] seam = new int[height()];
-        double[] distTo = new double[width()];
-        double[] oldDistTo = new double[width()];
-
-        for (int y = 0; y < height(); y++) {
-            for (int x = 0; x < width(); x++) {
-                verticalRelax(x, y, distTo, oldDistTo);
-            }
-            System.arraycopy(distTo, 0, oldDistTo, 0, width());
-        }
+        orient(false);
+        return findSeam();
+    }
 
-        double min = oldDistTo[0];
-        int best = 0;
-        for (int index = 0; index < oldDistTo.length; index++) {
-            if (oldDistTo[index] < min) {
-                min = oldDistTo[index];
-                best = index;
-            }
+    public    void removeHorizontalSeam(int[] seam) {  // remove horizontal seam from current picture
+        // java.lang.IllegalArgumentException if null argument
+        if (null == seam) {
+            throw new java.lang.IllegalArgumentException();
         }
-
-        seam[height() - 1] = best;
-        for (int i = height() - 2; i >= 0; i--) {
-            seam[i] = parent[best][i + 1];
-            best = parent[best][i + 1];
+        // java.lang.IllegalArgumentException removeHorizontalSeam() is called when the height of the picture is less than or equal to 1.
+        // or if the array is of wrong length
+        if (height() <= 1 || seam.length != width()) {
+            throw new java.lang.IllegalArgumentException();
         }
-        return seam;
+        orient(true);
+        removeSeam(seam);
     }
 
-    public    void removeHorizontalSeam(int[] seam) {  // remove horizontal seam from current picture
+    public    void removeVerticalSeam(int[] seam) {    // remove vertical seam from current picture
         // java.lang.IllegalArgumentException if null argument
         if (null == seam) {
             throw new java.lang.IllegalArgumentException();
         }
-
-        // java.lang.IllegalArgumentException removeHorizontalSeam() is called when the height of the picture is less than or equal to 1.
-        if (height() <= 1) {
+        // java.lang.IllegalArgumentException if removeVerticalSeam() is called when the width of the picture is less than or equal to 1
+        // or if the array is of wrong length
+        if (width() <= 1 || seam.length != height()) {
             throw new java.lang.IllegalArgumentException();
         }
+        orient(false);
+        removeSeam(seam);
+    }
 
-        // Throw exception if seam is not the same length as the width
-        if (seam.length != picture.width()) {
+    /**
+     * Carves the picture down to targetWidth x targetHeight, one seam per search;
+     * see resizeTo(int, int, int).
+     */
+    public    void resizeTo(int targetWidth, int targetHeight) {
+        resizeTo(targetWidth, targetHeight, 1);
+    }
+
+    /**
+     * Carves the picture down to targetWidth x targetHeight. While both dimensions
+     * are too large, the direction whose last cheapest seam had the lower energy
+     * per pixel goes next, so the cheaper dimension is carved first.
+     *
+     * Each search removes up to seamsPerPass seams: the cheapest one and then the
+     * cheapest paths to other end columns that stay at least two columns clear of
+     * the seams taken so far. With one seam per pass this is exactly a sequence of
+     * find and remove calls; with more, the later seams of a pass are cheapest in
+     * the picture before the pass rather than after the seams before them.
+     */
+    public    void resizeTo(int targetWidth, int targetHeight, int seamsPerPass) {
+        // java.lang.IllegalArgumentException if the target is not within the current picture, or no seams are taken per pass
+        if (targetWidth < 1 || targetWidth > width() || targetHeight < 1 || targetHeight > height() || seamsPerPass < 1) {
             throw new java.lang.IllegalArgumentException();
         }
 
+        double verticalCost = -1;       // energy per pixel of the last cheapest seam that way; -1 until known
+        double horizontalCost = -1;
+        while (width() > targetWidth || height() > targetHeight) {
+            boolean vertical;
+            if (height() == targetHeight) {
+                vertical = true;
+            } else if (width() == targetWidth) {
+                vertical = false;
+            } else if (verticalCost < 0 || horizontalCost < 0) {
+                vertical = verticalCost < 0;
+            } else {
+                vertical = verticalCost <= horizontalCost;
+            }
 
-        // valid seam (i.e., either an entry is outside its prescribed range or two adjacent entries differ by more than 1).
-        for (int i = 0; i < seam.length - 1; i++) {
-            if (Math.abs(seam[i] - seam[i+1]) > 1) {
-                throw new java.lang.IllegalArgumentException();
+            orient(!vertical);
+            int n = Math.min(seamsPerPass, vertical ? width() - targetWidth : height() - targetHeight);
+            double cost = carve(n);
+            if (vertical) {
+                verticalCost = cost;
+            } else {
+                horizontalCost = cost;
             }
         }
+    }
+
+    // the cheapest seam down the rows of the layout
+    private int[] findSeam() {
+        double[] distTo = search();
+        return backtrack(cheapest(distTo));
+    }
+
+    /**
+     * Removes up to n seams found by one search down the layout, at least two
+     * columns apart in every row, and returns the energy per pixel of the cheapest.
+     */
+    private double carve(int n) {
+        double[] distTo = search();
+        int end = cheapest(distTo);
+        double cost = distTo[end] / rows;
+        if (n == 1) {
+            removeSeams(new int[][] {backtrack(end)}, 1);
+            return cost;
+        }
 
-        Picture p = new Picture(width(), height() - 1);
-        for (int y = 0; y < width(); y++) {
-            int k = 0;
-            for (int x = 0; x < height(); x++) {
-                if (x != seam[y]) {
-                    p.set(y, k, picture.get(y, x));
-                    k++;
+        if (null == taken) {
+            taken = new int[parent.length];
+        }
+        stamp++;
+        int[][] seams = new int[n][];
+        int found = 0;
+        for (int tries = 0; found < n && tries < CANDIDATES * n; tries++) {
+            if (tries > 0) {
+                end = cheapest(distTo);
+            }
+            if (Double.POSITIVE_INFINITY == distTo[end]) {
+                break;
+            }
+            distTo[end] = Double.POSITIVE_INFINITY;
+            int[] seam = backtrack(end);
+            if (clear(seam)) {
+                // seams that keep a column between them in every row never cross, so their order is that of row 0
+                int j = found++;
+                while (j > 0 && seams[j - 1][0] > seam[0]) {
+                    seams[j] = seams[j - 1];
+                    j--;
+                }
+                seams[j] = seam;
+                for (int y = 0; y < rows; y++) {
+                    for (int x = Math.max(0, seam[y] - 1); x <= Math.min(columns - 1, seam[y] + 1); x++) {
+                        taken[y * columns + x] = stamp;
+                    }
                 }
             }
         }
+        removeSeams(seams, found);
+        return cost;
+    }
 
-        this.picture = p;
-        double[][] oldEnergy = energy;
-        energy = new double[width()][height()];
-
-        for (int y = 0; y < height(); y++) {
-            for (int x = 0; x < width(); x++) {
-                energy[x][y] = energy(x, y);
+    // true if no pixel of seam is on or next to a seam taken in this pass
+    private boolean clear(int[] seam) {
+        for (int y = 0; y < rows; y++) {
+            if (taken[y * columns + seam[y]] == stamp) {
+                return false;
             }
         }
+        return true;
     }
-    
-    public    void removeVerticalSeam(int[] seam) {    // remove vertical seam from current picture
-        // java.lang.IllegalArgumentException if null argument
-        if (null == seam) {
-            throw new java.lang.IllegalArgumentException();
+
+    // relaxes every row of the layout, filling in parent; returns the distances to the last row
+    private double[] search() {
+        double[] distTo = new double[columns];
+        double[] oldDistTo = new double[columns];
+
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                verticalRelax(x, y, distTo, oldDistTo);
+            }
+            double[] t = oldDistTo;
+            oldDistTo = distTo;
+            distTo = t;
         }
-        // java.lang.IllegalArgumentException if removeVerticalSeam() is called when the width of the picture is less than or equal to 1
-        if (width() <= 1) {
-            throw new java.lang.IllegalArgumentException();
+        return oldDistTo;
+    }
+
+    // the first column of least distance
+    private int cheapest(double[] distTo) {
+        double min = distTo[0];
+        int best = 0;
+        for (int index = 0; index < columns; index++) {
+            if (distTo[index] < min) {
+                min = distTo[index];
+                best = index;
+            }
         }
+        return best;
+    }
 
-        // java.lang.IllegalArgumentException if array is of wrong length or it the array is not a valid seam
-        if (seam.length != picture.height()) {
-            throw new java.lang.IllegalArgumentException();
+    // the cheapest seam ending at column best of the last row, by parent
+    private int[] backtrack(int best) {
+        int[] seam = new int[rows];
+        seam[rows - 1] = best;
+        for (int i = rows - 2; i >= 0; i--) {
+            best = parent[(i + 1) * columns + best];
+            seam[i] = best;
         }
-        
+        return seam;
+    }
+
+    // removes a seam down the rows of the layout
+    private void removeSeam(int[] seam) {
         // valid seam (i.e., either an entry is outside its prescribed range or two adjacent entries differ by more than 1).
-        for (int i = 0; i < seam.length - 1; i++) {
-            if (Math.abs(seam[i] - seam[i+1]) > 1) {
+        for (int i = 0; i < seam.length; i++) {
+            if (seam[i] < 0 || seam[i] > columns - 1) {
+                throw new java.lang.IllegalArgumentException();
+            }
+            if (i > 0 && Math.abs(seam[i] - seam[i - 1]) > 1) {
                 throw new java.lang.IllegalArgumentException();
             }
         }
 
-        Picture p = new Picture(width() -1, height());
-        for (int y = 0; y < height(); y++) {
-            int k = 0;
-            for (int x = 0; x < width(); x++) {
-                if (x != seam[y]) {
-                    p.set(k, y, picture.get(x, y));
-                    k++;
+        removeSeams(new int[][] {seam}, 1);
+    }
+
+    /**
+     * Removes the first n of seams from the layout. The seams are valid, in order
+     * of column and at least two columns apart in every row.
+     */
+    private void removeSeams(int[][] seams, int n) {
+        close(rgb, seams, n);
+        close(energy, seams, n);
+        columns -= n;
+
+        // Only the pixels either side of a seam have new neighbours. Left and right
+        // ones for sure; above and below only where the seam steps sideways, and the
+        // column that then sees a different pixel is min(seam[y], seam[y +- 1]), which
+        // is one of the two as well. Seam j lands j columns left of where it was.
+        for (int y = 0; y < rows; y++) {
+            for (int j = 0; j < n; j++) {
+                int s = seams[j][y] - j;
+                for (int x = Math.max(0, s - 1); x <= Math.min(columns - 1, s); x++) {
+                    energy[y * columns + x] = pixelEnergy(x, y);
                 }
             }
         }
-        this.picture = p;
-        double[][] oldEnergy = energy;
-        energy = new double[width()][height()];
+    }
+
+    // closes each row of the int[] or double[] array over its seam pixels; rows only move towards the front, so the copy is in place
+    private void close(Object array, int[][] seams, int n) {
+        int to = 0;
+        for (int y = 0; y < rows; y++) {
+            int from = y * columns;
+            int start = 0;
+            for (int j = 0; j < n; j++) {
+                int s = seams[j][y];
+                System.arraycopy(array, from + start, array, to, s - start);
+                to += s - start;
+                start = s + 1;
+            }
+            System.arraycopy(array, from + start, array, to, columns - start);
+            to += columns - start;
+        }
+    }
+
+    // the energy of every pixel, a row at a time; large pictures in bands of rows on the common pool
+    private void computeEnergy() {
+        int parts = (long) columns * rows < PARALLEL_PIXELS ? 1 : ForkJoinPool.getCommonPoolParallelism();
+        if (parts > 1) {
+            IntStream.range(0, parts).parallel().forEach(p ->
+                computeEnergy((int) ((long) rows * p / parts), (int) ((long) rows * (p + 1) / parts)));
+        } else {
+            computeEnergy(0, rows);
+        }
+    }
 
-        for (int y = 0; y < height(); y++) {
-            for (int x = 0; x < width(); x++) {
-                energy[x][y] = energy(x, y);
+    private void computeEnergy(int from, int to) {
+        int[] sums = new int[columns];
+        for (int y = from; y < to; y++) {
+            if (y == 0 || y == rows - 1) {
+                Arrays.fill(energy, y * columns, (y + 1) * columns, MAX_ENERGY);
+            } else {
+                energyRow(y, sums);
             }
         }
     }
 
+    /**
+     * The energies of an inner row, in two loops the JIT can turn into SIMD code:
+     * the first works out the squared gradients of the row in ints, with every
+     * channel unpacked by a shift and a mask, and the second takes their square
+     * roots. Neither loop branches or calls out. pixelEnergy() is the same sum one
+     * pixel at a time, for the few pixels a seam removal touches.
+     */
+    private void energyRow(int row, int[] sums) {
+        int at = row * columns;
+        int above = at - columns;
+        int below = at + columns;
+        for (int x = 1; x < columns - 1; x++) {
+            int l = rgb[at + x - 1];
+            int r = rgb[at + x + 1];
+            int u = rgb[above + x];
+            int d = rgb[below + x];
+            int rx = ((l >> 16) & 0xff) - ((r >> 16) & 0xff);
+            int gx = ((l >> 8) & 0xff) - ((r >> 8) & 0xff);
+            int bx = (l & 0xff) - (r & 0xff);
+            int ry = ((u >> 16) & 0xff) - ((d >> 16) & 0xff);
+            int gy = ((u >> 8) & 0xff) - ((d >> 8) & 0xff);
+            int by = (u & 0xff) - (d & 0xff);
+            sums[x] = rx * rx + gx * gx + bx * bx + ry * ry + gy * gy + by * by;
+        }
+        for (int x = 1; x < columns - 1; x++) {
+            energy[at + x] = Math.sqrt(sums[x]);
+        }
+        energy[at] = MAX_ENERGY;
+        energy[at + columns - 1] = MAX_ENERGY;
+    }
+
+    // energy of the pixel at (col, row) of the layout; the same in either orientation
+    private double pixelEnergy(int col, int row) {
+        if (col == 0 || col == columns - 1 || row == 0 || row == rows - 1) {
+            return MAX_ENERGY;
+        }
+        int i = row * columns + col;
+        int xDiff = gradient(rgb[i - 1], rgb[i + 1]);
+        int yDiff = gradient(rgb[i - columns], rgb[i + columns]);
+        return java.lang.Math.sqrt(xDiff + yDiff);
+    }
+
     private void verticalRelax(int col, int row, double[] distTo, double[] oldDistTo) {
+        int i = row * columns + col;
         if (row == 0) {
             distTo[col] = MAX_ENERGY;
-            parent[col][row] = -1;
+            parent[i] = -1;
             return;
         }
 
-        if (col == 0 && oldDistTo.length == 1) {
-            distTo[col] = energy[col][row];
-            parent[col][row] = col;
+        if (columns == 1) {
+            distTo[col] = oldDistTo[col] + energy[i];
+            parent[i] = col;
             return;
         }
-        
+
         if (col == 0) {
-            // we have only 2 edges
-            double a = oldDistTo[col];
-            double b = oldDistTo[col + 1];        // TODO Fails on 1x8.png, 8x1.png
-            double min = Math.min(a, b);
-            distTo[col] = min + energy[col][row];
-            if (a < min) {
-                parent[col][row] = col;
+            // we have only 2 edges; prefer straight down on a tie
+            double mid = oldDistTo[col];
+            double right = oldDistTo[col + 1];
+            double min = Math.min(mid, right);
+            distTo[col] = min + energy[i];
+            if (Math.abs(min - mid) < EPSILON) {
+                parent[i] = col;
             } else {
-                parent[col][row] = col + 1;
+                parent[i] = col + 1;
             }
             return;
         }
 
-        if (col == width() - 1) {
-            // we have only 2 edges
-            double a = oldDistTo[col];
-            double b = oldDistTo[col - 1];
-            double min = Math.min(a, b);
-            distTo[col] = min + energy[col][row];
-            if (a < min) {
-                parent[col][row] = col;
+        if (col == columns - 1) {
+            // we have only 2 edges; prefer the left one on a tie, as with 3 edges
+            double left = oldDistTo[col - 1];
+            double mid = oldDistTo[col];
+            double min = Math.min(left, mid);
+            distTo[col] = min + energy[i];
+            if (Math.abs(min - left) < EPSILON) {
+                parent[i] = col - 1;
             } else {
-                parent[col][row] = col - 1;
+                parent[i] = col;
             }
             return;
         }
@@ -231,48 +450,76 @@ public class SeamCarver {
 
         double min = Math.min(Math.min(left, mid), right);
 
-        distTo[col] = min + energy[col][row];
+        distTo[col] = min + energy[i];
         if (Math.abs(min - left) < EPSILON) {
-            parent[col][row] = col - 1;
+            parent[i] = col - 1;
         } else if (Math.abs(min - mid) < EPSILON) {
-            parent[col][row] = col;
+            parent[i] = col;
         } else {
-            parent[col][row] = col + 1;
+            parent[i] = col + 1;
+        }
+    }
+
+    // puts the layout in the given orientation, transposing only if it is not in it already
+    private void orient(boolean transpose) {
+        if (transposed != transpose) {
+            transpose();
+            transposed = transpose;
         }
     }
 
-    private void flipPicture() {
-        Picture flippedPicture = new Picture(picture.height(), picture.width());
-        double[][] energyNew = new double[picture.height()][picture.width()];
-        for (int i = 0; i < picture.width(); i++) {
-            for (int j = 0; j < picture.height(); j++) {
-                flippedPicture.set(j, i, picture.get(i, j));
-                energyNew[j][i] = energy[i][j];
+    // swaps rows and columns of the pixels and energies, in tiles so both sides stay in cache
+    private void transpose() {
+        if (null == rgbSpare) {
+            rgbSpare = new int[rgb.length];
+            energySpare = new double[energy.length];
+        }
+        for (int r0 = 0; r0 < rows; r0 += TILE) {
+            int r1 = Math.min(rows, r0 + TILE);
+            for (int c0 = 0; c0 < columns; c0 += TILE) {
+                int c1 = Math.min(columns, c0 + TILE);
+                for (int r = r0; r < r1; r++) {
+                    for (int c = c0; c < c1; c++) {
+                        rgbSpare[c * rows + r] = rgb[r * columns + c];
+                        energySpare[c * rows + r] = energy[r * columns + c];
+                    }
+                }
             }
         }
-        energy = energyNew;
-        picture = flippedPicture;
-        parent = new int[picture.width()][picture.height()];
+        int[] rgbOld = rgb;
+        rgb = rgbSpare;
+        rgbSpare = rgbOld;
+        double[] energyOld = energy;
+        energy = energySpare;
+        energySpare = energyOld;
+        int t = columns;
+        columns = rows;
+        rows = t;
     }
 
     /**
-     * (redA - redB)^2 + (greenA - greenB)^2 + (blueA - blueB)^2
+     * (redA - redB)^2 + (greenA - greenB)^2 + (blueA - blueB)^2 of two packed 0xRRGGBB colours
      */
-    private double gradient(Color a, Color b) {
-        int redDiff = a.getRed() - b.getRed();
-        int greenDiff = a.getGreen() - b.getGreen();
-        int blueDiff = a.getBlue() - b.getBlue();
+    private static int gradient(int a, int b) {
+        int redDiff = ((a >> 16) & 0xff) - ((b >> 16) & 0xff);
+        int greenDiff = ((a >> 8) & 0xff) - ((b >> 8) & 0xff);
+        int blueDiff = (a & 0xff) - (b & 0xff);
 
         return (redDiff * redDiff) + (greenDiff * greenDiff) + (blueDiff * blueDiff);
     }
-    
+
     public static void main(String[] args) {
-        // First parameter should be an image filename
+        // First parameter should be an image filename, optionally followed by a target width and height
         SeamCarver sc = new SeamCarver(new Picture(args[0]));
         StdOut.printf("energy(1, 1) = %f\n", sc.energy(1, 1));
 
+        if (args.length >= 3) {
+            sc.resizeTo(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            StdOut.printf("resized to %d x %d\n", sc.width(), sc.height());
+            return;
+        }
         int[] seam = sc.findVerticalSeam();
         sc.removeVerticalSeam(seam);
     }
-        
+
 }